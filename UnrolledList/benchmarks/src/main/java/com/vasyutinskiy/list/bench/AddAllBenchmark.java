@@ -0,0 +1,55 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code addAll} of a {@code batch} element collection: appended to an empty
+ * list, and spliced into the middle of a list already holding {@code size}
+ * elements. Every invocation starts from a fresh list, so the splice score
+ * includes building that list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class AddAllBenchmark {
+
+    @Param({"UNROLLED", "UNROLLED_INDEXED", "ARRAY_LIST", "LINKED_LIST"})
+    Impl impl;
+
+    @Param({"100000"})
+    int size;
+
+    @Param({"10", "1000", "100000"})
+    int batch;
+
+    List<Integer> base;
+    List<Integer> source;
+
+    @Setup
+    public void setUp() {
+        base = new ArrayList<Integer>(Impl.ARRAY_LIST.newList(size));
+        source = new ArrayList<Integer>(Impl.ARRAY_LIST.newList(batch));
+    }
+
+    @Benchmark
+    public List<Integer> append() {
+        List<Integer> list = (List<Integer>) impl.create();
+        list.addAll(source);
+        return list;
+    }
+
+    @Benchmark
+    public List<Integer> splice() {
+        List<Integer> list = (List<Integer>) impl.create();
+        list.addAll(base);
+        list.addAll(size / 2, source);
+        return list;
+    }
+}
@@ -0,0 +1,34 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills an empty collection with {@code size} elements through {@code add}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class AddBenchmark {
+
+    @Param({"UNROLLED", "ARRAY_LIST", "LINKED_LIST", "ARRAY_DEQUE"})
+    Impl impl;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    Integer value = 42;
+
+    @Benchmark
+    public Collection<Integer> add() {
+        Collection<Integer> c = impl.create();
+        for (int i = 0; i < size; i++)
+            c.add(value);
+        return c;
+    }
+}
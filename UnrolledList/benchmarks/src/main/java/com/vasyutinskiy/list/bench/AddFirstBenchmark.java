@@ -0,0 +1,34 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills an empty deque with {@code size} elements through {@code addFirst}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class AddFirstBenchmark {
+
+    @Param({"UNROLLED", "LINKED_LIST", "ARRAY_DEQUE"})
+    Impl impl;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    Integer value = 42;
+
+    @Benchmark
+    public Deque<Integer> addFirst() {
+        Deque<Integer> d = impl.newDeque(0);
+        for (int i = 0; i < size; i++)
+            d.addFirst(value);
+        return d;
+    }
+}
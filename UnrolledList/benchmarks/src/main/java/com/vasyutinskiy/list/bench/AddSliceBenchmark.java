@@ -0,0 +1,56 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending a {@code batch} element slice of an array to a fresh
+ * {@code UnrolledLinkedList}, through {@code addAll(Collection)} of a view
+ * of the slice, which copies it with {@code toArray} first, and through
+ * {@code addAll(E[], int, int)} and {@code addAllFirst}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class AddSliceBenchmark {
+
+    @Param({"1000", "100000"})
+    int batch;
+
+    Integer[] source;
+    List<Integer> view;
+
+    @Setup
+    public void setUp() {
+        source = Impl.ARRAY_LIST.newList(batch + 2).toArray(new Integer[0]);
+        view = Arrays.asList(source).subList(1, batch + 1);
+    }
+
+    @Benchmark
+    public List<Integer> collection() {
+        final UnrolledLinkedList<Integer> list = new UnrolledLinkedList<Integer>();
+        list.addAll(view);
+        return list;
+    }
+
+    @Benchmark
+    public List<Integer> slice() {
+        final UnrolledLinkedList<Integer> list = new UnrolledLinkedList<Integer>();
+        list.addAll(source, 1, batch);
+        return list;
+    }
+
+    @Benchmark
+    public List<Integer> sliceFirst() {
+        final UnrolledLinkedList<Integer> list = new UnrolledLinkedList<Integer>();
+        list.addAllFirst(source, 1, batch);
+        return list;
+    }
+}
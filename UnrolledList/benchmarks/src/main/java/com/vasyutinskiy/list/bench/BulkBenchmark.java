@@ -0,0 +1,59 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code forEach}, {@code replaceAll}, {@code removeIf} and
+ * {@code subList().clear()} over a list holding {@code size} elements.
+ * {@code removeIf} drops every other element and the sublist clear drops the
+ * middle half, so each invocation gets a freshly built list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BulkBenchmark {
+
+    @Param({"UNROLLED", "ARRAY_LIST", "LINKED_LIST"})
+    Impl impl;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    List<Integer> list;
+    long sum;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        list = impl.newList(size);
+    }
+
+    @Benchmark
+    public long forEach() {
+        sum = 0;
+        list.forEach(i -> sum += i);
+        return sum;
+    }
+
+    @Benchmark
+    public List<Integer> replaceAll() {
+        list.replaceAll(i -> i + 1);
+        return list;
+    }
+
+    @Benchmark
+    public boolean removeIf() {
+        return list.removeIf(i -> (i & 1) == 0);
+    }
+
+    @Benchmark
+    public List<Integer> subListClear() {
+        list.subList(size / 4, size - size / 4).clear();
+        return list;
+    }
+}
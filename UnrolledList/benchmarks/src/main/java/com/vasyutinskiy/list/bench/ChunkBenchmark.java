@@ -0,0 +1,57 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summing an {@code UnrolledLinkedList} holding {@code size} pseudo random
+ * values through its iterator, through {@code forEach} and through
+ * {@code forEachChunk}, which runs a plain loop over each node array.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ChunkBenchmark {
+
+    @Param({"100000", "10000000"})
+    int size;
+
+    UnrolledLinkedList<Integer> list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = (UnrolledLinkedList<Integer>) Impl.UNROLLED.newList(size);
+    }
+
+    @Benchmark
+    public long iterator() {
+        long sum = 0;
+        for (Integer e : list)
+            sum += e;
+        return sum;
+    }
+
+    @Benchmark
+    public long forEach() {
+        final long[] sum = new long[1];
+        list.forEach(e -> sum[0] += e);
+        return sum[0];
+    }
+
+    @Benchmark
+    public long forEachChunk() {
+        final long[] sum = new long[1];
+        list.forEachChunk((items, from, to) -> {
+            long s = 0;
+            for (int i = from; i < to; i++)
+                s += (Integer) items[i];
+            sum[0] += s;
+        });
+        return sum[0];
+    }
+}
@@ -0,0 +1,101 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A list of {@code size} elements left with nodes just over half full by
+ * random removals against the same list after {@code compact()}: random
+ * {@code get} and a full {@code forEach}, plus the cost of compacting.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CompactBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    UnrolledLinkedList<Integer> sparse;
+    UnrolledLinkedList<Integer> compacted;
+    Indices indices;
+    long sum;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sparse = newSparseList();
+        compacted = newSparseList();
+        compacted.compact();
+        indices = new Indices(sparse.size());
+    }
+
+    /**
+     * A fresh snapshot of the sparse list for every {@code compact()} call,
+     * so compacting also pays for copying the arrays it writes to.
+     */
+    @State(Scope.Thread)
+    public static class Victim {
+        UnrolledLinkedList<Integer> list;
+
+        @Setup(Level.Invocation)
+        public void setUp(CompactBenchmark benchmark) {
+            list = benchmark.sparse.snapshot();
+        }
+    }
+
+    /**
+     * Returns a list of twice {@code size} elements that had every node
+     * but the ends emptied to just over half by removals, so it holds about
+     * {@code size} elements.
+     */
+    private UnrolledLinkedList<Integer> newSparseList() {
+        UnrolledLinkedList<Integer> list = (UnrolledLinkedList<Integer>) Impl.UNROLLED.newList(2 * size);
+        final int nodeCapacity = list.getNodeCapacity();
+        final int keep = (nodeCapacity >> 1) + 1;
+        Random rand = new Random(42);
+        // nodes of a list built by appends are full; drop down to keep per node
+        for (int start = 0; start + nodeCapacity <= list.size(); start += keep) {
+            for (int i = keep; i < nodeCapacity; i++)
+                list.remove(start + rand.nextInt(nodeCapacity - i + keep));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public UnrolledLinkedList<Integer> compact(Victim victim) {
+        victim.list.compact();
+        return victim.list;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Integer getSparse() {
+        return sparse.get(indices.next());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Integer getCompacted() {
+        return compacted.get(indices.next());
+    }
+
+    @Benchmark
+    public long forEachSparse() {
+        sum = 0;
+        sparse.forEach(i -> sum += i);
+        return sum;
+    }
+
+    @Benchmark
+    public long forEachCompacted() {
+        sum = 0;
+        compacted.forEach(i -> sum += i);
+        return sum;
+    }
+}
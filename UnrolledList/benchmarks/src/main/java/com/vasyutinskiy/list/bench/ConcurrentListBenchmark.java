@@ -0,0 +1,75 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.ConcurrentUnrolledList;
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-mostly use of a list shared between threads: three threads doing
+ * random {@code get}s while one thread replaces random elements and another
+ * one inserts and removes at random positions. {@code SYNCHRONIZED} is an
+ * {@code UnrolledLinkedList} behind {@code Collections.synchronizedList}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Group)
+public class ConcurrentListBenchmark {
+
+    @Param({"CONCURRENT", "SYNCHRONIZED"})
+    String impl;
+
+    @Param({"1000", "10000"})
+    int size;
+
+    List<Integer> list;
+    Integer value = 42;
+
+    @Setup
+    public void setUp() {
+        List<Integer> source = Impl.UNROLLED.newList(size);
+        if ("CONCURRENT".equals(impl))
+            list = new ConcurrentUnrolledList<Integer>(source);
+        else
+            list = Collections.synchronizedList(new UnrolledLinkedList<Integer>(source));
+    }
+
+    @State(Scope.Thread)
+    public static class Positions {
+        Indices indices;
+
+        @Setup
+        public void setUp(ConcurrentListBenchmark b) {
+            indices = new Indices(b.size - 1);
+        }
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(3)
+    public Integer get(Positions p) {
+        return list.get(p.indices.next());
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public Integer set(Positions p) {
+        return list.set(p.indices.next(), value);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public Integer insertRemove(Positions p) {
+        final int i = p.indices.next();
+        list.add(i, value);
+        return list.remove(i);
+    }
+}
@@ -0,0 +1,226 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.ConcurrentUnrolledList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stress test of {@code ConcurrentUnrolledList}: reader threads check that
+ * the list stays sorted while one writer inserts, removes and sets elements
+ * at their sorted positions. Odd values are only ever inserted and removed
+ * in runs of {@code RUN} equal elements, by a single bulk operation each,
+ * so readers also check that every bulk operation is atomic. Multiples of
+ * {@code ANCHOR} are never removed and must always be found. Run on its own:
+ * <pre>
+ *     java -cp target/benchmarks.jar com.vasyutinskiy.list.bench.ConcurrentListStress [seconds] [readers]</pre>
+ * It exits with status 1 on the first violation.
+ */
+public class ConcurrentListStress {
+    private static final int NODE_CAPACITY = 8;
+    private static final int ANCHOR = 1000;
+    private static final int ANCHORS = 50;
+    private static final int RUN = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        final long seconds = args.length > 0 ? Long.parseLong(args[0]) : 10;
+        final int readers = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        final ConcurrentUnrolledList<Integer> list = new ConcurrentUnrolledList<Integer>(NODE_CAPACITY);
+        final List<Integer> model = new ArrayList<Integer>();
+        for (int i = 0; i < ANCHORS; i++) {
+            model.add(i * ANCHOR);
+            model.add(i * ANCHOR + 2);
+        }
+        list.addAll(model);
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int r = 0; r < readers; r++) {
+            final long seed = r;
+            threads.add(new Thread(() -> {
+                final Random random = new Random(seed);
+                long reads = 0;
+                try {
+                    while (!done.get() && failure.get() == null) {
+                        final String error = read(list, random);
+                        if (error != null)
+                            failure.compareAndSet(null, error);
+                        reads++;
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, "reader threw " + e);
+                }
+                System.out.println("reader " + seed + ": " + reads + " reads");
+            }));
+        }
+        threads.add(new Thread(() -> {
+            final Random random = new Random(42);
+            long writes = 0;
+            try {
+                while (!done.get() && failure.get() == null) {
+                    write(list, model, random);
+                    writes++;
+                }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, "writer threw " + e);
+            }
+            System.out.println("writer: " + writes + " writes");
+        }));
+        for (Thread t : threads)
+            t.start();
+
+        final long deadline = System.nanoTime() + seconds * 1000000000L;
+        while (System.nanoTime() < deadline && failure.get() == null)
+            Thread.sleep(100);
+        done.set(true);
+        for (Thread t : threads)
+            t.join();
+
+        if (failure.get() == null && !list.equals(model))
+            failure.set("list differs from the writer's model");
+        if (failure.get() != null) {
+            System.out.println("FAILED: " + failure.get());
+            System.exit(1);
+        }
+        System.out.println("OK, " + list.size() + " elements");
+    }
+
+    /**
+     * Runs one random read and returns a description of the violation it
+     * found, if any.
+     */
+    private static String read(ConcurrentUnrolledList<Integer> list, Random random) {
+        final int anchor = random.nextInt(ANCHORS) * ANCHOR;
+        switch (random.nextInt(4)) {
+            case 0:
+                return checkSnapshot(list.toArray(), "toArray");
+            case 1: {
+                final List<Integer> seen = new ArrayList<Integer>();
+                for (Integer e : list)
+                    seen.add(e);
+                return checkSnapshot(seen.toArray(), "iterator");
+            }
+            case 2:
+                if (list.indexOf(anchor) < 0 || !list.contains(anchor))
+                    return "indexOf lost anchor " + anchor;
+                if (list.lastIndexOf(anchor) < 0)
+                    return "lastIndexOf lost anchor " + anchor;
+                return null;
+            default: {
+                if (list.size() < ANCHORS)
+                    return "size " + list.size();
+                final int i = random.nextInt(ANCHORS);
+                if (list.get(i) == null)
+                    return "get(" + i + ") returned null";
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Checks that a snapshot is sorted, holds every anchor and holds every
+     * odd value a multiple of {@code RUN} times.
+     */
+    private static String checkSnapshot(Object[] a, String name) {
+        int anchors = 0;
+        for (int i = 0; i < a.length; i++) {
+            final int v = (Integer) a[i];
+            if (i > 0 && (Integer) a[i - 1] > v)
+                return name + " not sorted at " + i;
+            if (v % ANCHOR == 0)
+                anchors++;
+            if ((v & 1) != 0 && (i == 0 || (Integer) a[i - 1] != v)) {
+                int n = 1;
+                while (i + n < a.length && (Integer) a[i + n] == v)
+                    n++;
+                if (n != RUN)
+                    return name + " saw " + n + " of a run of " + RUN + " at " + i;
+            }
+        }
+        return anchors == ANCHORS ? null : name + " saw " + anchors + " anchors";
+    }
+
+    /**
+     * Runs one random write on the list and applies it to the model.
+     */
+    private static void write(ConcurrentUnrolledList<Integer> list, List<Integer> model, Random random) {
+        final int range = ANCHORS * ANCHOR;
+        switch (random.nextInt(6)) {
+            case 0: { // a single even element that is not an anchor
+                final int v = random.nextInt(range / 2) * 2 | 2;
+                final int i = position(model, v);
+                list.add(i, v);
+                model.add(i, v);
+                break;
+            }
+            case 1: { // a single element that is not an anchor
+                final int i = random.nextInt(model.size());
+                final int v = model.get(i);
+                if (v % ANCHOR != 0 && (v & 1) == 0) {
+                    list.remove(i);
+                    model.remove(i);
+                }
+                break;
+            }
+            case 2: { // a run of an odd value not in the list yet
+                final int v = random.nextInt(range / 2) * 2 + 1;
+                final int i = position(model, v);
+                if (i < model.size() && model.get(i) == v)
+                    break;
+                final List<Integer> run = Collections.nCopies(RUN, v);
+                list.addAll(i, run);
+                model.addAll(i, run);
+                break;
+            }
+            case 3: { // a run, by one of the bulk removals
+                final int i = random.nextInt(model.size());
+                final int v = model.get(i);
+                if ((v & 1) == 0)
+                    break;
+                final int from = position(model, v);
+                final int op = random.nextInt(3);
+                if (op == 0) {
+                    list.removeAll(Collections.singleton(v));
+                } else if (op == 1) {
+                    final Set<Integer> keep = new HashSet<Integer>(model);
+                    keep.remove(v);
+                    list.retainAll(keep);
+                } else {
+                    list.subList(from, from + RUN).clear();
+                }
+                model.subList(from, from + RUN).clear();
+                break;
+            }
+            default: { // replace an element with an equal one
+                final int i = random.nextInt(model.size());
+                list.set(i, model.get(i));
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the first element of the sorted model not less
+     * than v.
+     */
+    private static int position(List<Integer> model, int v) {
+        int lo = 0;
+        int hi = model.size();
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (model.get(mid) < v)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,46 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady state queue and stack usage of a deque holding {@code size}
+ * elements: every operation adds one element and takes one away. Run it with
+ * {@code -prof gc} to compare the allocation rate of plain and pooled nodes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DequeChurnBenchmark {
+
+    @Param({"UNROLLED", "UNROLLED_POOLED", "LINKED_LIST", "ARRAY_DEQUE"})
+    Impl impl;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    Deque<Integer> deque;
+    Integer value = 42;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        deque = impl.newDeque(size);
+    }
+
+    @Benchmark
+    public Integer fifo() {
+        deque.addLast(value);
+        return deque.pollFirst();
+    }
+
+    @Benchmark
+    public Integer lifo() {
+        deque.push(value);
+        return deque.pop();
+    }
+}
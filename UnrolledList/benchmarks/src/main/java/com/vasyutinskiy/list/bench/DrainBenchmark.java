@@ -0,0 +1,69 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A consumer taking {@code batch} elements off the front of an
+ * {@code UnrolledLinkedList} holding {@code size} elements, one
+ * {@code pollFirst()} at a time and with the batched
+ * {@code pollFirst(n, dst)} and {@code drainTo}. Every operation appends
+ * the batch back first, so the list keeps its size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DrainBenchmark {
+
+    @Param({"100000"})
+    int size;
+
+    @Param({"16", "1024"})
+    int batch;
+
+    UnrolledLinkedList<Integer> list;
+    List<Integer> refill;
+    Integer[] dst;
+    ArrayList<Integer> sink;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        list = (UnrolledLinkedList<Integer>) Impl.UNROLLED.newList(size);
+        dst = new Integer[batch];
+        refill = Arrays.asList(new Integer[batch]);
+        for (int i = 0; i < batch; i++)
+            refill.set(i, i);
+        sink = new ArrayList<Integer>(batch);
+    }
+
+    @Benchmark
+    public Integer[] pollFirstLoop() {
+        list.addAll(refill);
+        for (int i = 0; i < batch; i++)
+            dst[i] = list.pollFirst();
+        return dst;
+    }
+
+    @Benchmark
+    public Integer[] pollFirstBatch() {
+        list.addAll(refill);
+        list.pollFirst(batch, dst);
+        return dst;
+    }
+
+    @Benchmark
+    public List<Integer> drainTo() {
+        list.addAll(refill);
+        sink.clear();
+        list.drainTo(sink, batch);
+        return sink;
+    }
+}
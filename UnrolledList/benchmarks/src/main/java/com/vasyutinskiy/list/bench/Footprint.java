@@ -0,0 +1,76 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledIntList;
+
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Rough retained heap per collection, measured as the heap growth after
+ * building a batch of identical collections. JMH does not measure
+ * footprint, so this is run on its own:
+ * <pre>
+ *     java -cp target/benchmarks.jar com.vasyutinskiy.list.bench.Footprint [size]</pre>
+ */
+public class Footprint {
+    private static final int SAMPLE_SIZE = 100;
+    private static final long SLEEP_INTERVAL = 100;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        for (Impl impl : Impl.values())
+            System.out.println(impl + " size " + footprint(impl::newCollection, size));
+        System.out.println("UNROLLED_INT size " + footprint(Footprint::newIntList, size));
+    }
+
+    static UnrolledIntList newIntList(int size) {
+        UnrolledIntList list = new UnrolledIntList();
+        Random rand = new Random(42);
+        for (int i = 0; i < size; i++)
+            list.add(rand.nextInt());
+        return list;
+    }
+
+    /**
+     * Returns the approximate number of bytes retained by a collection
+     * holding {@code size} random elements, built by the given factory.
+     */
+    static long footprint(IntFunction<?> factory, int size) {
+        //this array will simply hold a bunch of references, such that
+        //the objects cannot be garbage-collected
+        Object[] objects = new Object[SAMPLE_SIZE];
+
+        long startMemoryUse = getMemoryUse();
+        for (int idx = 0; idx < objects.length; ++idx)
+            objects[idx] = factory.apply(size);
+        long endMemoryUse = getMemoryUse();
+
+        return Math.round((endMemoryUse - startMemoryUse) / (double) objects.length);
+    }
+
+    private static long getMemoryUse() {
+        putOutTheGarbage();
+        long totalMemory = Runtime.getRuntime().totalMemory();
+
+        putOutTheGarbage();
+        long freeMemory = Runtime.getRuntime().freeMemory();
+
+        return (totalMemory - freeMemory);
+    }
+
+    private static void putOutTheGarbage() {
+        collectGarbage();
+        collectGarbage();
+    }
+
+    private static void collectGarbage() {
+        try {
+            System.gc();
+            Thread.sleep(SLEEP_INTERVAL);
+            System.runFinalization();
+            Thread.sleep(SLEEP_INTERVAL);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
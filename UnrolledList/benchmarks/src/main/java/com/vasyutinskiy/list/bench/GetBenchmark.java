@@ -0,0 +1,48 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code get(int)} on a list holding {@code size} elements, both at random
+ * positions and as an indexed for-loop over the whole list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class GetBenchmark {
+
+    @Param({"UNROLLED", "UNROLLED_INDEXED", "ARRAY_LIST", "LINKED_LIST"})
+    Impl impl;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    List<Integer> list;
+    Indices indices;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = impl.newList(size);
+        indices = new Indices(size);
+    }
+
+    @Benchmark
+    public Integer randomGet() {
+        return list.get(indices.next());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long indexedLoop() {
+        long sum = 0;
+        for (int i = 0; i < size; i++)
+            sum += list.get(i);
+        return sum;
+    }
+}
@@ -0,0 +1,79 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.NodePool;
+import com.vasyutinskiy.list.UnrolledLinkedList;
+
+import java.util.*;
+
+/**
+ * Collections the benchmarks compare against each other.
+ * <p/>
+ * Suites that exercise positional access only take the {@link List}
+ * implementations, suites that exercise the ends only take the {@link Deque}
+ * ones; {@code ArrayDeque} has no positional access and {@code ArrayList}
+ * has no cheap head.
+ */
+public enum Impl {
+    UNROLLED {
+        Collection<Integer> create() {
+            return new UnrolledLinkedList<Integer>();
+        }
+    },
+    UNROLLED_INDEXED {
+        Collection<Integer> create() {
+            return new UnrolledLinkedList<Integer>(UnrolledLinkedList.DEFAULT_NODE_CAPACITY, true);
+        }
+    },
+    UNROLLED_POOLED {
+        Collection<Integer> create() {
+            return new UnrolledLinkedList<Integer>(POOL);
+        }
+    },
+    ARRAY_LIST {
+        Collection<Integer> create() {
+            return new ArrayList<Integer>();
+        }
+    },
+    LINKED_LIST {
+        Collection<Integer> create() {
+            return new LinkedList<Integer>();
+        }
+    },
+    ARRAY_DEQUE {
+        Collection<Integer> create() {
+            return new ArrayDeque<Integer>();
+        }
+    };
+
+    /**
+     * Pool shared by every {@link #UNROLLED_POOLED} list of a benchmark run.
+     */
+    static final NodePool POOL = new NodePool(UnrolledLinkedList.DEFAULT_NODE_CAPACITY);
+
+    abstract Collection<Integer> create();
+
+    /**
+     * Returns a new collection holding {@code size} pseudo random values.
+     */
+    Collection<Integer> newCollection(int size) {
+        Collection<Integer> c = create();
+        Random rand = new Random(42);
+        for (int i = 0; i < size; i++)
+            c.add(rand.nextInt());
+        return c;
+    }
+
+    List<Integer> newList(int size) {
+        Collection<Integer> c = newCollection(size);
+        if (!(c instanceof List))
+            throw new IllegalArgumentException(this + " is not a List");
+        return (List<Integer>) c;
+    }
+
+    Deque<Integer> newDeque(int size) {
+        Collection<Integer> c = newCollection(size);
+        if (!(c instanceof Deque))
+            throw new IllegalArgumentException(this + " is not a Deque");
+        return (Deque<Integer>) c;
+    }
+}
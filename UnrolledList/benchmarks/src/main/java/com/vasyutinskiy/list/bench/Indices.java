@@ -0,0 +1,28 @@
+package com.vasyutinskiy.list.bench;
+
+import java.util.Random;
+
+/**
+ * Pre-computed pseudo random positions, so that benchmarks don't measure
+ * {@link Random} itself.
+ */
+final class Indices {
+    private static final int COUNT = 1 << 12;
+    private static final int MASK = COUNT - 1;
+
+    private final int[] indices = new int[COUNT];
+    private int cursor;
+
+    /**
+     * @param bound exclusive upper bound of the produced positions
+     */
+    Indices(int bound) {
+        Random rand = new Random(7);
+        for (int i = 0; i < COUNT; i++)
+            indices[i] = rand.nextInt(bound);
+    }
+
+    int next() {
+        return indices[cursor++ & MASK];
+    }
+}
@@ -0,0 +1,42 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code add(int, E)} at a random position of a list holding {@code size}
+ * elements. The tail element is dropped after every insert so the list keeps
+ * its size; removing the tail is cheap for every measured implementation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class InsertBenchmark {
+
+    @Param({"UNROLLED", "UNROLLED_INDEXED", "ARRAY_LIST", "LINKED_LIST"})
+    Impl impl;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    List<Integer> list;
+    Indices indices;
+    Integer value = 42;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        list = impl.newList(size);
+        indices = new Indices(size);
+    }
+
+    @Benchmark
+    public Integer insert() {
+        list.add(indices.next(), value);
+        return list.remove(size);
+    }
+}
@@ -0,0 +1,39 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterator traversal of a collection holding {@code size} elements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class IterationBenchmark {
+
+    @Param({"UNROLLED", "ARRAY_LIST", "LINKED_LIST", "ARRAY_DEQUE"})
+    Impl impl;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    Collection<Integer> collection;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        collection = impl.newCollection(size);
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0;
+        for (Integer i : collection)
+            sum += i;
+        return sum;
+    }
+}
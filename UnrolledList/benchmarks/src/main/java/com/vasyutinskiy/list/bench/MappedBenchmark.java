@@ -0,0 +1,79 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.MappedUnrolledList;
+import com.vasyutinskiy.list.RecordCodec;
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link MappedUnrolledList} of longs against an on-heap
+ * {@code UnrolledLinkedList<Long>} holding the same {@code size} values:
+ * random {@code get} and a full {@code forEach}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MappedBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    Path file;
+    MappedUnrolledList<Long> mapped;
+    UnrolledLinkedList<Long> heap;
+    Indices indices;
+    long sum;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("mapped", ".list");
+        Files.delete(file);
+        mapped = new MappedUnrolledList<Long>(file, RecordCodec.LONG);
+        heap = new UnrolledLinkedList<Long>();
+        for (long i = 0; i < size; i++) {
+            mapped.add(i);
+            heap.add(i);
+        }
+        indices = new Indices(size);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mapped.close();
+        Files.delete(file);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Long getMapped() {
+        return mapped.get(indices.next());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Long getHeap() {
+        return heap.get(indices.next());
+    }
+
+    @Benchmark
+    public long forEachMapped() {
+        sum = 0;
+        mapped.forEach(i -> sum += i);
+        return sum;
+    }
+
+    @Benchmark
+    public long forEachHeap() {
+        sum = 0;
+        heap.forEach(i -> sum += i);
+        return sum;
+    }
+}
@@ -0,0 +1,45 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The insert of {@link InsertBenchmark} on an {@code UnrolledLinkedList}
+ * with metrics disabled and enabled, to measure what counting splits,
+ * merges and node walks costs. Flight Recorder events are not enabled, so
+ * the enabled case only adds the counting; run with
+ * {@code -jvmArgs -XX:StartFlightRecording=settings=...} to add them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+    @Param({"false", "true"})
+    boolean metrics;
+
+    @Param({"1000", "100000"})
+    int size;
+
+    UnrolledLinkedList<Integer> list;
+    Indices indices;
+    Integer value = 42;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        list = (UnrolledLinkedList<Integer>) Impl.UNROLLED.newList(size);
+        list.setMetricsEnabled(metrics);
+        indices = new Indices(size);
+    }
+
+    @Benchmark
+    public Integer insert() {
+        list.add(indices.next(), value);
+        return list.remove(size);
+    }
+}
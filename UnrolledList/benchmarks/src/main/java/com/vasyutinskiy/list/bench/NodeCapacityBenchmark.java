@@ -0,0 +1,60 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sweeps the node capacity of {@link UnrolledLinkedList} to show the
+ * lookup / insert / traversal tradeoff: bigger nodes mean shorter node walks
+ * and denser scans, but more elements to shift on every positional insert.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class NodeCapacityBenchmark {
+
+    @Param({"8", "16", "32", "64", "128", "256", "512", "1024"})
+    int nodeCapacity;
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    UnrolledLinkedList<Integer> list;
+    Indices indices;
+    Integer value = 42;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        list = new UnrolledLinkedList<Integer>(nodeCapacity);
+        Random rand = new Random(42);
+        for (int i = 0; i < size; i++)
+            list.add(rand.nextInt());
+        indices = new Indices(size);
+    }
+
+    @Benchmark
+    public Integer get() {
+        return list.get(indices.next());
+    }
+
+    @Benchmark
+    public Integer insert() {
+        list.add(indices.next(), value);
+        return list.remove(size);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long iterate() {
+        long sum = 0;
+        for (Integer i : list)
+            sum += i;
+        return sum;
+    }
+}
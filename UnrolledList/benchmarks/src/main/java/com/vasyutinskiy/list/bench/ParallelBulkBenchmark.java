@@ -0,0 +1,63 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The bulk operations of an {@code UnrolledLinkedList} holding {@code size}
+ * pseudo random values, sequential and on the common fork/join pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParallelBulkBenchmark {
+
+    @Param({"100000", "10000000"})
+    int size;
+
+    UnrolledLinkedList<Integer> list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = (UnrolledLinkedList<Integer>) Impl.UNROLLED.newList(size);
+    }
+
+    @Benchmark
+    public void forEach(Blackhole bh) {
+        list.forEach(bh::consume);
+    }
+
+    @Benchmark
+    public void parallelForEach(Blackhole bh) {
+        list.parallelForEach(bh::consume);
+    }
+
+    @Benchmark
+    public void replaceAll() {
+        list.replaceAll(e -> e ^ 1);
+    }
+
+    @Benchmark
+    public void parallelReplaceAll() {
+        list.parallelReplaceAll(e -> e ^ 1);
+    }
+
+    @Benchmark
+    public long reduce() {
+        long sum = 0;
+        for (Integer e : list)
+            sum += e;
+        return sum;
+    }
+
+    @Benchmark
+    public long parallelReduce() {
+        return list.parallelReduce(0L, (sum, e) -> sum + e, Long::sum);
+    }
+}
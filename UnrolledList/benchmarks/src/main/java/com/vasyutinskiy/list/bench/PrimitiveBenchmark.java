@@ -0,0 +1,82 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledIntList;
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UnrolledIntList} against a boxed {@code UnrolledLinkedList<Integer>}
+ * holding the same {@code size} values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PrimitiveBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    UnrolledLinkedList<Integer> boxed;
+    UnrolledIntList primitive;
+    Indices indices;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boxed = new UnrolledLinkedList<Integer>();
+        primitive = new UnrolledIntList();
+        Random rand = new Random(42);
+        for (int i = 0; i < size; i++) {
+            int value = rand.nextInt();
+            boxed.add(value);
+            primitive.add(value);
+        }
+        indices = new Indices(size);
+    }
+
+    @Benchmark
+    public UnrolledLinkedList<Integer> addBoxed() {
+        UnrolledLinkedList<Integer> list = new UnrolledLinkedList<Integer>();
+        for (int i = 0; i < size; i++)
+            list.add(i);
+        return list;
+    }
+
+    @Benchmark
+    public UnrolledIntList addPrimitive() {
+        UnrolledIntList list = new UnrolledIntList();
+        for (int i = 0; i < size; i++)
+            list.add(i);
+        return list;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int getBoxed() {
+        return boxed.get(indices.next());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int getPrimitive() {
+        return primitive.get(indices.next());
+    }
+
+    @Benchmark
+    public long sumBoxed() {
+        long sum = 0;
+        for (Integer i : boxed)
+            sum += i;
+        return sum;
+    }
+
+    @Benchmark
+    public long sumPrimitive() {
+        return primitive.stream().asLongStream().sum();
+    }
+}
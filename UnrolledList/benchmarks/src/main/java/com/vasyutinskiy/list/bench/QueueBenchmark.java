@@ -0,0 +1,124 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledConcurrentQueue;
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread handoff through a concurrent queue: the {@code spsc} group runs one
+ * producer and one consumer, the {@code mpsc} group three producers and one
+ * consumer. Scores are offers and polls per microsecond; a poll finding the
+ * queue empty counts too, so compare the offer scores.
+ * <p/>
+ * <p>{@code UNROLLED} is an {@link UnrolledConcurrentQueue}, in single
+ * producer mode for the {@code spsc} group. The unbounded queues would grow
+ * without limit whenever the consumer falls behind, so producers back off
+ * while more than {@link #BACKLOG} elements wait; {@code ArrayBlockingQueue}
+ * is bounded to the same size and simply rejects offers when full.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Group)
+public class QueueBenchmark {
+
+    static final int BACKLOG = 1 << 16;
+
+    /**
+     * How many operations a thread does between looks at the backlog.
+     */
+    static final int CHECK_INTERVAL = 1024;
+
+    @Param({"UNROLLED", "CONCURRENT_LINKED", "ARRAY_BLOCKING"})
+    String impl;
+
+    Queue<Integer> queue;
+
+    /**
+     * Number of elements taken, published by the consumer every
+     * {@link #CHECK_INTERVAL} polls.
+     */
+    volatile long polled;
+
+    Integer value = 42;
+
+    @Setup
+    public void setUp(BenchmarkParams params) {
+        if ("UNROLLED".equals(impl))
+            queue = new UnrolledConcurrentQueue<Integer>(UnrolledLinkedList.DEFAULT_NODE_CAPACITY,
+                    params.getBenchmark().endsWith("spsc"));
+        else if ("CONCURRENT_LINKED".equals(impl))
+            queue = new ConcurrentLinkedQueue<Integer>();
+        else
+            queue = new ArrayBlockingQueue<Integer>(BACKLOG);
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        long offered;
+        int producers;
+
+        @Setup
+        public void setUp(BenchmarkParams params) {
+            producers = params.getBenchmark().endsWith("spsc") ? 1 : 3;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Consumer {
+        long polled;
+    }
+
+    boolean offer(Producer p, Control control) {
+        if ((++p.offered & (CHECK_INTERVAL - 1)) == 0) {
+            // the consumer stops polling at the end of an iteration
+            while (p.offered * p.producers - polled > BACKLOG && !control.stopMeasurement)
+                Thread.yield();
+        }
+        return queue.offer(value);
+    }
+
+    Integer poll(Consumer c) {
+        final Integer e = queue.poll();
+        if (e != null && (++c.polled & (CHECK_INTERVAL - 1)) == 0)
+            polled = c.polled;
+        return e;
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public boolean spscOffer(Producer p, Control control) {
+        return offer(p, control);
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public Integer spscPoll(Consumer c) {
+        return poll(c);
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(3)
+    public boolean mpscOffer(Producer p, Control control) {
+        return offer(p, control);
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(1)
+    public Integer mpscPoll(Consumer c) {
+        return poll(c);
+    }
+}
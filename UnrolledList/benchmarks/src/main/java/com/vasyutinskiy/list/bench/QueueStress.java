@@ -0,0 +1,124 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledConcurrentQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stress test of {@code UnrolledConcurrentQueue} in multi-producer and in
+ * single-producer mode: producers offer numbered elements while the consumer
+ * takes them with {@code poll}, {@code relaxedPoll} and {@code drain}, and
+ * now and then removes elements from the middle with {@code removeIf}. The
+ * consumer checks that the elements of every producer come out in the order
+ * they went in and that none is lost or taken twice. Run on its own:
+ * <pre>
+ *     java -cp target/benchmarks.jar com.vasyutinskiy.list.bench.QueueStress [elements] [producers]</pre>
+ * It exits with status 1 on the first violation.
+ */
+public class QueueStress {
+    private static final int NODE_CAPACITY = 16;
+
+    /**
+     * Elements whose number is a multiple of this may be removed by the
+     * consumer instead of taken.
+     */
+    private static final int REMOVABLE = 97;
+
+    public static void main(String[] args) throws InterruptedException {
+        final int elements = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        final int producers = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        String failure = run(new UnrolledConcurrentQueue<Long>(NODE_CAPACITY, false), producers, elements);
+        if (failure == null)
+            failure = run(new UnrolledConcurrentQueue<Long>(NODE_CAPACITY, true), 1, elements);
+        if (failure != null) {
+            System.out.println("FAILED: " + failure);
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * Runs the given number of producers offering elements each against the
+     * consumer, on the calling thread, and returns a description of the
+     * first violation, if any.
+     */
+    private static String run(final UnrolledConcurrentQueue<Long> queue, int producers, final int elements)
+            throws InterruptedException {
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final long id = p;
+            threads.add(new Thread(() -> {
+                for (int seq = 0; seq < elements; seq++)
+                    queue.offer((id << 32) | seq);
+            }));
+        }
+        for (Thread t : threads)
+            t.start();
+
+        final int[] next = new int[producers];
+        final long[] removed = new long[1];
+        final String[] failure = new String[1];
+        final Random random = new Random(42);
+        long seen = 0;
+        final long total = (long) producers * elements;
+        while (seen + removed[0] < total && failure[0] == null) {
+            final int op = random.nextInt(100);
+            if (op < 60) {
+                final Long e = (op < 30) ? queue.poll() : queue.relaxedPoll();
+                if (e != null) {
+                    failure[0] = check(e, next);
+                    seen++;
+                }
+            } else if (op < 90) {
+                final int n = queue.drain(e -> {
+                    if (failure[0] == null)
+                        failure[0] = check(e, next);
+                });
+                seen += n;
+                if (n == 0 && !alive(threads) && queue.isEmpty() && seen + removed[0] < total)
+                    failure[0] = (total - seen - removed[0]) + " elements lost";
+            } else {
+                queue.removeIf(e -> {
+                    if ((int) (long) e % REMOVABLE != 0 || random.nextBoolean())
+                        return false;
+                    removed[0]++;
+                    return true;
+                });
+            }
+        }
+        for (Thread t : threads)
+            t.join();
+        if (failure[0] == null && (queue.poll() != null || !queue.isEmpty() || queue.size() != 0))
+            failure[0] = "queue not empty after every element was taken";
+        System.out.println((queue.isSingleProducer() ? "SPSC" : "MPSC") + ", " + producers + " producers: "
+                + seen + " taken, " + removed[0] + " removed");
+        return failure[0];
+    }
+
+    private static boolean alive(List<Thread> threads) {
+        for (Thread t : threads) {
+            if (t.isAlive())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks that e is the next element of its producer, allowing for
+     * removable elements skipped in between.
+     */
+    private static String check(long e, int[] next) {
+        final int producer = (int) (e >>> 32);
+        final int seq = (int) e;
+        for (int s = next[producer]; s < seq; s++) {
+            if (s % REMOVABLE != 0)
+                return "producer " + producer + ": got " + seq + ", expected " + next[producer];
+        }
+        if (seq < next[producer])
+            return "producer " + producer + ": got " + seq + " again or out of order";
+        next[producer] = seq + 1;
+        return null;
+    }
+}
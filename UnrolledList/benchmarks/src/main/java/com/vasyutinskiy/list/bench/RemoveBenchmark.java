@@ -0,0 +1,41 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code remove(int)} at a random position of a list holding {@code size}
+ * elements. An element is appended after every removal so the list keeps its
+ * size; appending is cheap for every measured implementation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class RemoveBenchmark {
+
+    @Param({"UNROLLED", "UNROLLED_INDEXED", "ARRAY_LIST", "LINKED_LIST"})
+    Impl impl;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    List<Integer> list;
+    Indices indices;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        list = impl.newList(size);
+        indices = new Indices(size);
+    }
+
+    @Benchmark
+    public boolean remove() {
+        Integer removed = list.remove(indices.next());
+        return list.add(removed);
+    }
+}
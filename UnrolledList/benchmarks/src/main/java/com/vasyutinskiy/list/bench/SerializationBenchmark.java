@@ -0,0 +1,88 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.ElementCodec;
+import com.vasyutinskiy.list.UnrolledIntList;
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading back a list holding {@code size} elements in memory:
+ * Java serialization of an {@code UnrolledLinkedList<Integer>} against its
+ * {@code writeTo}/{@code readFrom} with {@link ElementCodec#INTEGER}, and the
+ * raw format of an {@link UnrolledIntList} holding the same values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    UnrolledLinkedList<Integer> list;
+    UnrolledIntList primitive;
+    byte[] serialized;
+    byte[] encoded;
+    byte[] raw;
+    ByteArrayOutputStream bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        list = (UnrolledLinkedList<Integer>) Impl.UNROLLED.newList(size);
+        primitive = new UnrolledIntList();
+        for (Integer i : list)
+            primitive.add(i);
+        bytes = new ByteArrayOutputStream(size * 16);
+        serialized = serialize().toByteArray();
+        encoded = writeTo().toByteArray();
+        raw = writeRaw().toByteArray();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream serialize() throws IOException {
+        bytes.reset();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(list);
+        out.flush();
+        return bytes;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream writeTo() throws IOException {
+        bytes.reset();
+        DataOutputStream out = new DataOutputStream(bytes);
+        list.writeTo(out, ElementCodec.INTEGER);
+        out.flush();
+        return bytes;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream writeRaw() throws IOException {
+        bytes.reset();
+        DataOutputStream out = new DataOutputStream(bytes);
+        primitive.writeTo(out);
+        out.flush();
+        return bytes;
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(new ByteArrayInputStream(serialized)).readObject();
+    }
+
+    @Benchmark
+    public Object readFrom() throws IOException {
+        return UnrolledLinkedList.readFrom(new DataInputStream(new ByteArrayInputStream(encoded)), ElementCodec.INTEGER);
+    }
+
+    @Benchmark
+    public Object readRaw() throws IOException {
+        return UnrolledIntList.readFrom(new DataInputStream(new ByteArrayInputStream(raw)));
+    }
+}
@@ -0,0 +1,55 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time copies of an {@code UnrolledLinkedList} holding {@code size}
+ * elements: {@code snapshot()} against {@code clone()} and {@code toArray()},
+ * and a snapshot followed by a write to the list, which copies one node.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    UnrolledLinkedList<Integer> list;
+    Indices indices;
+    Integer value = 42;
+
+    @Setup
+    public void setUp() {
+        list = (UnrolledLinkedList<Integer>) Impl.UNROLLED.newList(size);
+        indices = new Indices(size);
+    }
+
+    @Benchmark
+    public Object snapshot() {
+        return list.snapshot();
+    }
+
+    @Benchmark
+    public Object snapshotThenSet() {
+        UnrolledLinkedList<Integer> snapshot = list.snapshot();
+        list.set(indices.next(), value);
+        return snapshot;
+    }
+
+    @Benchmark
+    public Object cloneList() {
+        return list.clone();
+    }
+
+    @Benchmark
+    public Object[] toArray() {
+        return list.toArray();
+    }
+}
@@ -0,0 +1,49 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.UnrolledLinkedList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code sort(null)} of a list holding {@code size} pseudo random values,
+ * and {@code parallelSort(null)} of an {@code UnrolledLinkedList}. Every
+ * invocation sorts a freshly built list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SortBenchmark {
+
+    @Param({"UNROLLED", "ARRAY_LIST", "LINKED_LIST"})
+    Impl impl;
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    List<Integer> list;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        list = impl.newList(size);
+    }
+
+    @Benchmark
+    public List<Integer> sort() {
+        list.sort(null);
+        return list;
+    }
+
+    @Benchmark
+    public List<Integer> parallelSort() {
+        if (list instanceof UnrolledLinkedList)
+            ((UnrolledLinkedList<Integer>) list).parallelSort(null);
+        else
+            list.sort(null);
+        return list;
+    }
+}
@@ -0,0 +1,115 @@
+package com.vasyutinskiy.list.bench;
+
+import com.vasyutinskiy.list.SortedUnrolledList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A sorted sequence of {@code size} random values kept by a
+ * {@code SortedUnrolledList}, by an {@code ArrayList} searched with
+ * {@code Collections.binarySearch}, and by a {@code TreeSet} where it can:
+ * an insert followed by the removal of the inserted value, and the rank and
+ * select queries. The append benchmarks keep a window of {@code size}
+ * ascending values, the way a log is kept: every operation appends a value
+ * greater than all the others and drops the least one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SortedBenchmark {
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    SortedUnrolledList<Integer> sorted;
+    ArrayList<Integer> array;
+    TreeSet<Integer> tree;
+    Random random;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        random = new Random(42);
+        final ArrayList<Integer> values = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++)
+            values.add(random.nextInt());
+        sorted = new SortedUnrolledList<Integer>(values);
+        array = new ArrayList<Integer>(values);
+        Collections.sort(array);
+        tree = new TreeSet<Integer>(values);
+    }
+
+    @Benchmark
+    public boolean sortedInsert() {
+        final Integer v = random.nextInt();
+        sorted.add(v);
+        return sorted.remove(v);
+    }
+
+    @Benchmark
+    public Integer arrayListInsert() {
+        final Integer v = random.nextInt();
+        int i = Collections.binarySearch(array, v);
+        array.add((i < 0) ? -i - 1 : i, v);
+        i = Collections.binarySearch(array, v);
+        return array.remove(i);
+    }
+
+    @Benchmark
+    public boolean treeSetInsert() {
+        final Integer v = random.nextInt();
+        tree.add(v);
+        return tree.remove(v);
+    }
+
+    @State(Scope.Thread)
+    public static class Ascending {
+        SortedUnrolledList<Integer> sorted;
+        TreeSet<Integer> tree;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setUp(SortedBenchmark b) {
+            final ArrayList<Integer> values = new ArrayList<Integer>(b.size);
+            for (next = 0; next < b.size; next++)
+                values.add(next);
+            sorted = new SortedUnrolledList<Integer>(values);
+            tree = new TreeSet<Integer>(values);
+        }
+    }
+
+    @Benchmark
+    public boolean sortedAppend(Ascending s) {
+        s.sorted.add(s.next++);
+        return s.sorted.remove(s.sorted.first());
+    }
+
+    @Benchmark
+    public Integer treeSetAppend(Ascending s) {
+        s.tree.add(s.next++);
+        return s.tree.pollFirst();
+    }
+
+    @Benchmark
+    public int sortedRank() {
+        return sorted.rank(random.nextInt());
+    }
+
+    @Benchmark
+    public int arrayListRank() {
+        final int i = Collections.binarySearch(array, random.nextInt());
+        return (i < 0) ? -i - 1 : i;
+    }
+
+    @Benchmark
+    public Integer sortedSelect() {
+        return sorted.select(random.nextInt(size));
+    }
+}
@@ -0,0 +1,42 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential and parallel stream reduction over a collection holding
+ * {@code size} elements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class StreamBenchmark {
+
+    @Param({"UNROLLED", "ARRAY_LIST", "LINKED_LIST", "ARRAY_DEQUE"})
+    Impl impl;
+
+    @Param({"100000", "1000000", "10000000"})
+    int size;
+
+    Collection<Integer> collection;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        collection = impl.newCollection(size);
+    }
+
+    @Benchmark
+    public long sequential() {
+        return collection.stream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public long parallel() {
+        return collection.parallelStream().mapToLong(Integer::longValue).sum();
+    }
+}
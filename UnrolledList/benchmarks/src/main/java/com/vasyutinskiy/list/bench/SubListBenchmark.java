@@ -0,0 +1,57 @@
+package com.vasyutinskiy.list.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Windowed processing: sums a list holding {@code size} elements through
+ * consecutive {@code subList} views of {@code window} elements, once with the
+ * view's {@code forEach} and once with an indexed loop over the view.
+ * {@code LinkedList} is left out, its generic views walk from the ends.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SubListBenchmark {
+
+    @Param({"UNROLLED", "UNROLLED_INDEXED", "ARRAY_LIST"})
+    Impl impl;
+
+    @Param({"100000"})
+    int size;
+
+    @Param({"64", "4096"})
+    int window;
+
+    List<Integer> list;
+    long sum;
+
+    @Setup
+    public void setUp() {
+        list = impl.newList(size);
+    }
+
+    @Benchmark
+    public long windowForEach() {
+        sum = 0;
+        for (int from = 0; from < size; from += window)
+            list.subList(from, Math.min(from + window, size)).forEach(i -> sum += i);
+        return sum;
+    }
+
+    @Benchmark
+    public long windowGet() {
+        long sum = 0;
+        for (int from = 0; from < size; from += window) {
+            List<Integer> view = list.subList(from, Math.min(from + window, size));
+            for (int i = 0, n = view.size(); i < n; i++)
+                sum += view.get(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,113 @@
+package com.vasyutinskiy.list;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events of lists with enabled metrics. This is the
+ * only class referring to {@code jdk.jfr}. It lives in {@code src-jfr}, out
+ * of the Java 8 compile of {@code src}, and is built against a JDK that has
+ * Flight Recorder: 8u262 or later, or 11 or later. {@link ListMetrics} only
+ * loads it on JDKs that have the module, and runs without it if it is not
+ * on the class path.
+ * <p/>
+ * <p>The events are instant events, disabled unless a recording enables
+ * them, for example with a custom {@code .jfc} file or
+ * {@code Recording.enable("com.vasyutinskiy.list.NodeSplit")}.
+ */
+final class ListEvents implements ListMetrics.Events {
+
+    /**
+     * Called by {@link ListMetrics} through reflection.
+     */
+    ListEvents() {
+    }
+
+    public void split(int nodeCapacity, int size, boolean towardsHead, boolean newNode) {
+        final NodeSplit e = new NodeSplit();
+        if (e.shouldCommit()) {
+            e.nodeCapacity = nodeCapacity;
+            e.size = size;
+            e.towardsHead = towardsHead;
+            e.newNode = newNode;
+            e.commit();
+        }
+    }
+
+    public void merge(int nodeCapacity, int size, int merged) {
+        final NodeMerge e = new NodeMerge();
+        if (e.shouldCommit()) {
+            e.nodeCapacity = nodeCapacity;
+            e.size = size;
+            e.merged = merged;
+            e.commit();
+        }
+    }
+
+    public void longWalk(int nodeCapacity, int size, int index, int walked) {
+        final LongNodeWalk e = new LongNodeWalk();
+        if (e.shouldCommit()) {
+            e.nodeCapacity = nodeCapacity;
+            e.size = size;
+            e.index = index;
+            e.walked = walked;
+            e.commit();
+        }
+    }
+
+    @Name("com.vasyutinskiy.list.NodeSplit")
+    @Label("Node Split")
+    @Category({"Unrolled List"})
+    @Description("A full node was split to make room for an insert")
+    static final class NodeSplit extends Event {
+        @Label("Node Capacity")
+        int nodeCapacity;
+
+        @Label("List Size")
+        int size;
+
+        @Label("Towards Head")
+        @Description("Whether the lower half of the node moved to its previous node")
+        boolean towardsHead;
+
+        @Label("New Node")
+        @Description("Whether a node was linked to take the moved half")
+        boolean newNode;
+    }
+
+    @Name("com.vasyutinskiy.list.NodeMerge")
+    @Label("Node Merge")
+    @Category({"Unrolled List"})
+    @Description("A node that dropped to half of its capacity was merged with a neighbour")
+    static final class NodeMerge extends Event {
+        @Label("Node Capacity")
+        int nodeCapacity;
+
+        @Label("List Size")
+        int size;
+
+        @Label("Merged Elements")
+        int merged;
+    }
+
+    @Name("com.vasyutinskiy.list.LongNodeWalk")
+    @Label("Long Node Walk")
+    @Category({"Unrolled List"})
+    @Description("A positional lookup stepped over many nodes")
+    static final class LongNodeWalk extends Event {
+        @Label("Node Capacity")
+        int nodeCapacity;
+
+        @Label("List Size")
+        int size;
+
+        @Label("Index")
+        int index;
+
+        @Label("Nodes Walked")
+        int walked;
+    }
+}
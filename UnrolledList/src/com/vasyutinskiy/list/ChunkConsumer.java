@@ -0,0 +1,26 @@
+package com.vasyutinskiy.list;
+
+/**
+ * Operation on the chunks of elements handed out by
+ * {@link UnrolledLinkedList#forEachChunk}: each chunk is a range of the
+ * array a node keeps its elements in, passed as it is, without copying.
+ * <p/>
+ * <p>The array is a read-only view. It must not be written to, since it may
+ * be shared with a snapshot of the list, and must not be kept after
+ * {@link #accept} returns, since the list reuses its node arrays.
+ *
+ * @param <E> the type of the elements in the chunks
+ */
+@FunctionalInterface
+public interface ChunkConsumer<E> {
+
+    /**
+     * Performs this operation on the elements {@code items[from, to)}, all
+     * of them of type {@code E}. The range is never empty.
+     *
+     * @param items the node array holding the elements
+     * @param from  the index of the first element, inclusive
+     * @param to    the index of the last element, exclusive
+     */
+    void accept(Object[] items, int from, int to);
+}
@@ -0,0 +1,73 @@
+package com.vasyutinskiy.list;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Big-endian byte array encodings shared by the chunked element codecs and
+ * the raw formats of the primitive lists. They match the byte order of
+ * {@link DataOutput}, so a chunk written through a byte array reads back
+ * element by element and vice versa.
+ */
+final class Codecs {
+
+    /**
+     * Magic number opening every stream written by a {@code writeTo} method.
+     */
+    static final int MAGIC = 0x554C4C31; // "ULL1"
+
+    private Codecs() {
+    }
+
+    static void putInt(byte[] b, int p, int v) {
+        b[p] = (byte) (v >>> 24);
+        b[p + 1] = (byte) (v >>> 16);
+        b[p + 2] = (byte) (v >>> 8);
+        b[p + 3] = (byte) v;
+    }
+
+    static int getInt(byte[] b, int p) {
+        return (b[p] << 24) | ((b[p + 1] & 0xFF) << 16) | ((b[p + 2] & 0xFF) << 8) | (b[p + 3] & 0xFF);
+    }
+
+    static void putLong(byte[] b, int p, long v) {
+        putInt(b, p, (int) (v >>> 32));
+        putInt(b, p + 4, (int) v);
+    }
+
+    static long getLong(byte[] b, int p) {
+        return ((long) getInt(b, p) << 32) | (getInt(b, p + 4) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Writes the header of a list stream: magic, node capacity and size.
+     */
+    static void writeHeader(DataOutput out, int nodeCapacity, int size) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(nodeCapacity);
+        out.writeInt(size);
+    }
+
+    /**
+     * Reads the magic and node capacity of a list stream, checking both.
+     */
+    static int readNodeCapacity(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new java.io.StreamCorruptedException("Not an unrolled list stream");
+        final int nodeCapacity = in.readInt();
+        if (nodeCapacity < 2)
+            throw new java.io.StreamCorruptedException("Illegal node capacity: " + nodeCapacity);
+        return nodeCapacity;
+    }
+
+    /**
+     * Reads the size of a list stream, checking it.
+     */
+    static int readSize(DataInput in) throws IOException {
+        final int size = in.readInt();
+        if (size < 0)
+            throw new java.io.StreamCorruptedException("Illegal size: " + size);
+        return size;
+    }
+}
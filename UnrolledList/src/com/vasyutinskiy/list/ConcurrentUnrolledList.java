@@ -0,0 +1,1033 @@
+package com.vasyutinskiy.list;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe unrolled linked list for read-mostly workloads.
+ * <p/>
+ * <p>Nodes are split and merged the same way as in {@link UnrolledLinkedList}.
+ * The shape of the node chain, that is which nodes there are and how many
+ * elements each holds, is guarded by a {@link StampedLock}; the elements of
+ * every node by a {@code StampedLock} of the node.
+ * <p/>
+ * <p>Readers walk the chain under an optimistic stamp of the chain lock,
+ * read the nodes under optimistic stamps of the node locks and validate
+ * both, so reads of different threads do not write to any shared memory and
+ * scale with the number of cores. A reader that finds the chain write-locked
+ * or whose reads do not validate tries again a few times, then takes the
+ * chain read lock. Every insert and removal write-locks the chain for the
+ * time of the update, so under a steady stream of them readers do end up
+ * waiting for writers.
+ * <p/>
+ * <p>{@code set} and {@code replaceAll} only lock the nodes they write to,
+ * so writers replacing elements in different nodes run in parallel. Inserts
+ * and removals shift the index of every later element; they lock the chain
+ * for the time of the update itself, after locating the position
+ * optimistically, and lock the node they change, plus the neighbour it is
+ * split into or merged with.
+ * <p/>
+ * <p>Iterators are snapshots, like the ones of
+ * {@link java.util.concurrent.CopyOnWriteArrayList}: they reflect the list
+ * when they were created and do not support {@code remove}, {@code set} or
+ * {@code add}. {@code toArray}, {@code forEach} and the search methods see
+ * every insert and removal atomically; a {@code set} running at the same time
+ * in another node may or may not be reflected. {@code subList} views are not
+ * thread-safe. Null elements are permitted.
+ *
+ * @param <E> the type of elements held in this list
+ */
+public class ConcurrentUnrolledList<E> extends AbstractList<E> {
+
+    /**
+     * Number of optimistic reads a reader tries before it takes the chain
+     * read lock.
+     */
+    private static final int OPTIMISTIC_TRIES = 4;
+
+    private final int nodeCapacity;
+
+    /**
+     * Guards the node chain, the element counts of the nodes and size.
+     */
+    private final StampedLock chain = new StampedLock();
+
+    private Node<E> first;
+    private Node<E> last;
+    private int size;
+
+    /**
+     * Start index of the node last returned by {@link #node(int)}. Only
+     * meaningful while holding the chain write lock.
+     */
+    private int nodeIndex;
+
+    /**
+     * Constructs an empty list with the default node capacity.
+     */
+    public ConcurrentUnrolledList() {
+        this(UnrolledLinkedList.DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty list whose nodes hold {@code nodeCapacity} elements.
+     *
+     * @param nodeCapacity the number of elements a single node holds
+     * @throws IllegalArgumentException if {@code nodeCapacity} is less than 2
+     */
+    public ConcurrentUnrolledList(int nodeCapacity) {
+        if (nodeCapacity < 2)
+            throw new IllegalArgumentException("Illegal node capacity: " + nodeCapacity);
+        this.nodeCapacity = nodeCapacity;
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified collection,
+     * in the order they are returned by the collection's iterator.
+     *
+     * @param c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null
+     */
+    public ConcurrentUnrolledList(Collection<? extends E> c) {
+        this();
+        addAll(c);
+    }
+
+    /**
+     * Returns the number of elements a single node of this list holds.
+     *
+     * @return the node capacity of this list
+     */
+    public int getNodeCapacity() {
+        return nodeCapacity;
+    }
+
+    public int size() {
+        for (int tries = OPTIMISTIC_TRIES; tries > 0; tries--) {
+            final long stamp = optimisticRead();
+            final int s = size;
+            if (chain.validate(stamp))
+                return s;
+        }
+        final long rs = chain.readLock();
+        try {
+            return size;
+        } finally {
+            chain.unlockRead(rs);
+        }
+    }
+
+    /**
+     * Returns an optimistic stamp of the chain lock, or zero if it is
+     * write-locked, in which case the writer is given a chance to finish
+     * first.
+     */
+    private long optimisticRead() {
+        final long stamp = chain.tryOptimisticRead();
+        if (stamp == 0)
+            Thread.yield();
+        return stamp;
+    }
+
+    public E get(int index) {
+        for (int tries = OPTIMISTIC_TRIES; tries > 0; tries--) {
+            final long stamp = optimisticRead();
+            if (stamp == 0)
+                continue;
+            // a single reference read needs no validation against the node
+            final int s = size;
+            Node<E> x = null;
+            int i = index;
+            if (index >= 0 && index < s) {
+                if (index < (s >> 1)) {
+                    x = first;
+                    for (int n; x != null && i >= (n = x.numElements); x = x.next)
+                        i -= n;
+                } else {
+                    i = s - 1 - index;
+                    x = last;
+                    for (int n; x != null && i >= (n = x.numElements); x = x.prev)
+                        i -= n;
+                    if (x != null)
+                        i = x.numElements - 1 - i;
+                }
+            }
+            final E e = (x != null && i >= 0 && i < nodeCapacity) ? x.items[i] : null;
+            if (chain.validate(stamp)) {
+                if (x == null)
+                    throw new IndexOutOfBoundsException(outOfBoundsMsg(index, s));
+                return e;
+            }
+        }
+
+        final long rs = chain.readLock();
+        try {
+            checkElementIndex(index);
+            Node<E> x = first;
+            int i = index;
+            for (; i >= x.numElements; x = x.next)
+                i -= x.numElements;
+            return x.items[i];
+        } finally {
+            chain.unlockRead(rs);
+        }
+    }
+
+    public E set(int index, E element) {
+        final long stamp = chain.tryOptimisticRead();
+        if (stamp != 0) {
+            final int s = size;
+            Node<E> x = null;
+            int i = index;
+            if (index >= 0 && index < s) {
+                x = first;
+                for (int n; x != null && i >= (n = x.numElements); x = x.next)
+                    i -= n;
+            }
+            if (x != null && i < nodeCapacity) {
+                // a chain writer locks x before changing it, so once the
+                // stamp validates under the node lock the position holds
+                final long ns = x.lock.writeLock();
+                try {
+                    if (chain.validate(stamp)) {
+                        final E oldValue = x.items[i];
+                        x.items[i] = element;
+                        return oldValue;
+                    }
+                } finally {
+                    x.lock.unlockWrite(ns);
+                }
+            }
+        }
+
+        final long rs = chain.readLock();
+        try {
+            checkElementIndex(index);
+            Node<E> x = first;
+            int i = index;
+            for (; i >= x.numElements; x = x.next)
+                i -= x.numElements;
+            final long ns = x.lock.writeLock();
+            try {
+                final E oldValue = x.items[i];
+                x.items[i] = element;
+                return oldValue;
+            } finally {
+                x.lock.unlockWrite(ns);
+            }
+        } finally {
+            chain.unlockRead(rs);
+        }
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        final long stamp = chain.writeLock();
+        try {
+            linkLast(e);
+            modCount++;
+            return true;
+        } finally {
+            chain.unlockWrite(stamp);
+        }
+    }
+
+    public void add(int index, E element) {
+        // walk to the position optimistically, so that the chain is locked
+        // for the update only; converting the stamp validates the walk
+        long stamp = chain.tryOptimisticRead();
+        Node<E> x = null;
+        int i = index;
+        if (stamp != 0 && index >= 0 && index < size) {
+            x = first;
+            for (int n; x != null && i >= (n = x.numElements); x = x.next)
+                i -= n;
+        }
+        if (stamp == 0 || (stamp = chain.tryConvertToWriteLock(stamp)) == 0) {
+            stamp = chain.writeLock();
+            x = null;
+        }
+        try {
+            checkPositionIndex(index);
+            if (index == size) {
+                linkLast(element);
+            } else {
+                if (x == null) {
+                    x = node(index);
+                    i = index - nodeIndex;
+                }
+                linkBefore(x, i, element);
+            }
+            modCount++;
+        } finally {
+            chain.unlockWrite(stamp);
+        }
+    }
+
+    public E remove(int index) {
+        long stamp = chain.tryOptimisticRead();
+        Node<E> x = null;
+        int i = index;
+        if (stamp != 0 && index >= 0 && index < size) {
+            x = first;
+            for (int n; x != null && i >= (n = x.numElements); x = x.next)
+                i -= n;
+        }
+        if (stamp == 0 || (stamp = chain.tryConvertToWriteLock(stamp)) == 0) {
+            stamp = chain.writeLock();
+            x = null;
+        }
+        try {
+            checkElementIndex(index);
+            if (x == null) {
+                x = node(index);
+                i = index - nodeIndex;
+            }
+            final E e = unlink(x, i);
+            modCount++;
+            return e;
+        } finally {
+            chain.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean remove(Object o) {
+        final long stamp = chain.writeLock();
+        try {
+            for (Node<E> x = first; x != null; x = x.next) {
+                for (int i = 0; i < x.numElements; i++) {
+                    if (o == null ? x.items[i] == null : o.equals(x.items[i])) {
+                        unlink(x, i);
+                        modCount++;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            chain.unlockWrite(stamp);
+        }
+    }
+
+    public boolean addAll(Collection<? extends E> c) {
+        final Object[] a = c.toArray();
+        if (a.length == 0)
+            return false;
+        final long stamp = chain.writeLock();
+        try {
+            for (Object o : a) {
+                @SuppressWarnings("unchecked") E e = (E) o;
+                linkLast(e);
+            }
+            modCount++;
+            return true;
+        } finally {
+            chain.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list at the specified position, in the order they are returned by the
+     * collection's iterator. The whole batch is inserted under one chain
+     * write lock, so readers see either none or all of it.
+     *
+     * @param index index at which to insert the first element from the
+     *              specified collection
+     * @param c     collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws NullPointerException      if the specified collection is null
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        final Object[] a = c.toArray();
+        final long stamp = chain.writeLock();
+        try {
+            checkPositionIndex(index);
+            if (a.length == 0)
+                return false;
+            if (index == size) {
+                for (Object o : a) {
+                    @SuppressWarnings("unchecked") E e = (E) o;
+                    linkLast(e);
+                }
+            } else {
+                linkAll(index, a);
+            }
+            modCount++;
+            return true;
+        } finally {
+            chain.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        final long stamp = chain.writeLock();
+        try {
+            first = last = null;
+            size = 0;
+            modCount++;
+        } finally {
+            chain.unlockWrite(stamp);
+        }
+    }
+
+    // Search Operations
+
+    public int indexOf(Object o) {
+        for (int tries = OPTIMISTIC_TRIES; tries > 0; tries--) {
+            final long stamp = optimisticRead();
+            if (stamp == 0)
+                continue;
+            final int index = indexOf(o, false);
+            if (index != RETRY && chain.validate(stamp))
+                return index;
+        }
+        final long rs = chain.readLock();
+        try {
+            return indexOf(o, true);
+        } finally {
+            chain.unlockRead(rs);
+        }
+    }
+
+    /**
+     * Result of an unlocked scan that lost a race with a writer.
+     */
+    private static final int RETRY = -2;
+
+    /**
+     * Scans the nodes from the first one, validating every node before its
+     * result is used. Unless locked, returns {@link #RETRY} if a node does
+     * not validate; any other result is only meaningful if the chain stamp
+     * validates afterwards.
+     */
+    private int indexOf(Object o, boolean locked) {
+        int index = 0;
+        for (Node<E> x = first; x != null; x = x.next) {
+            final E[] items = x.items;
+            for (; ; ) {
+                final long ns = x.lock.tryOptimisticRead();
+                final int n = Math.min(x.numElements, nodeCapacity);
+                int found = -1;
+                for (int i = 0; i < n; i++) {
+                    if (o == null ? items[i] == null : o.equals(items[i])) {
+                        found = i;
+                        break;
+                    }
+                }
+                if (x.lock.validate(ns)) {
+                    if (found >= 0)
+                        return index + found;
+                    index += n;
+                    break;
+                }
+                if (!locked)
+                    return RETRY;
+                // a set is in progress in x; wait for it
+                x.lock.unlockRead(x.lock.readLock());
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOf(Object o) {
+        for (int tries = OPTIMISTIC_TRIES; tries > 0; tries--) {
+            final long stamp = optimisticRead();
+            if (stamp == 0)
+                continue;
+            final Object[] a = toArray(false);
+            if (a != null && chain.validate(stamp))
+                return lastIndexOf(a, o);
+        }
+        final long rs = chain.readLock();
+        try {
+            return lastIndexOf(toArray(true), o);
+        } finally {
+            chain.unlockRead(rs);
+        }
+    }
+
+    private static int lastIndexOf(Object[] a, Object o) {
+        for (int i = a.length - 1; i >= 0; i--) {
+            if (o == null ? a[i] == null : o.equals(a[i]))
+                return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    // Bulk Operations
+
+    public Object[] toArray() {
+        for (int tries = OPTIMISTIC_TRIES; tries > 0; tries--) {
+            final long stamp = optimisticRead();
+            if (stamp == 0)
+                continue;
+            final Object[] a = toArray(false);
+            if (a != null && chain.validate(stamp))
+                return a;
+        }
+        final long rs = chain.readLock();
+        try {
+            return toArray(true);
+        } finally {
+            chain.unlockRead(rs);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        final Object[] elements = toArray();
+        final int s = elements.length;
+        if (a.length < s)
+            return (T[]) Arrays.copyOf(elements, s, a.getClass());
+        System.arraycopy(elements, 0, a, 0, s);
+        if (a.length > s)
+            a[s] = null;
+        return a;
+    }
+
+    /**
+     * Copies the elements node by node, validating every node copy. Unless
+     * locked, returns null as soon as something does not add up; any other
+     * result is only meaningful if the chain stamp validates afterwards.
+     */
+    private Object[] toArray(boolean locked) {
+        final int s = size;
+        final Object[] result = new Object[s];
+        int k = 0;
+        for (Node<E> x = first; x != null; x = x.next) {
+            for (; ; ) {
+                final long ns = x.lock.tryOptimisticRead();
+                final int n = x.numElements;
+                if (n < 0 || n > nodeCapacity || k + n > s)
+                    return null;
+                System.arraycopy(x.items, 0, result, k, n);
+                if (x.lock.validate(ns)) {
+                    k += n;
+                    break;
+                }
+                if (!locked)
+                    return null;
+                x.lock.unlockRead(x.lock.readLock());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Performs the given action for each element of a snapshot of this list.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        for (Object e : toArray())
+            action.accept((E) e);
+    }
+
+    /**
+     * Replaces each element of this list with the result of applying the
+     * operator to that element. Nodes are updated one at a time under their
+     * own lock, so readers of the other nodes are not disturbed.
+     *
+     * @param operator the operator to apply to each element
+     * @throws NullPointerException if the specified operator is null
+     */
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        if (operator == null)
+            throw new NullPointerException();
+        final long rs = chain.readLock();
+        try {
+            for (Node<E> x = first; x != null; x = x.next) {
+                final long ns = x.lock.writeLock();
+                try {
+                    for (int i = 0; i < x.numElements; i++)
+                        x.items[i] = operator.apply(x.items[i]);
+                } finally {
+                    x.lock.unlockWrite(ns);
+                }
+            }
+        } finally {
+            chain.unlockRead(rs);
+        }
+    }
+
+    /**
+     * Removes all of the elements of this list that satisfy the given
+     * predicate, repacking the remaining ones into full nodes.
+     *
+     * @param filter a predicate which returns {@code true} for elements to be
+     *               removed
+     * @return {@code true} if any elements were removed
+     * @throws NullPointerException if the specified filter is null
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super E> filter) {
+        if (filter == null)
+            throw new NullPointerException();
+        final long stamp = chain.writeLock();
+        try {
+            final Object[] a = toArray(true);
+            int kept = 0;
+            for (Object e : a) {
+                if (!filter.test((E) e))
+                    a[kept++] = e;
+            }
+            if (kept == a.length)
+                return false;
+            rebuild(a, kept);
+            modCount++;
+            return true;
+        } finally {
+            chain.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes from this list all of its elements that are contained in the
+     * specified collection, under one chain write lock. The collection must
+     * not be a view of this list.
+     *
+     * @param c collection containing elements to be removed from this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this) {
+            final long stamp = chain.writeLock();
+            try {
+                if (size == 0)
+                    return false;
+                rebuild(null, 0);
+                modCount++;
+                return true;
+            } finally {
+                chain.unlockWrite(stamp);
+            }
+        }
+        return removeIf(c::contains);
+    }
+
+    /**
+     * Retains only the elements in this list that are contained in the
+     * specified collection, under one chain write lock. The collection must
+     * not be a view of this list.
+     *
+     * @param c collection containing elements to be retained in this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            return false;
+        return removeIf(e -> !c.contains(e));
+    }
+
+    /**
+     * Removes the elements with an index between fromIndex, inclusive, and
+     * toIndex, exclusive, under one chain write lock, repacking the
+     * remaining ones into full nodes. Called by {@code clear} of sublists.
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        final long stamp = chain.writeLock();
+        try {
+            if (fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+                throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex
+                        + ", Size: " + size);
+            if (fromIndex == toIndex)
+                return;
+            final Object[] a = toArray(true);
+            System.arraycopy(a, toIndex, a, fromIndex, a.length - toIndex);
+            rebuild(a, a.length - (toIndex - fromIndex));
+            modCount++;
+        } finally {
+            chain.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sorts this list according to the order induced by the specified
+     * comparator, repacking the elements into full nodes.
+     *
+     * @param c the comparator used to compare list elements, or null for
+     *          natural ordering
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        final long stamp = chain.writeLock();
+        try {
+            final Object[] a = toArray(true);
+            Arrays.sort(a, (Comparator<Object>) c);
+            rebuild(a, a.length);
+            modCount++;
+        } finally {
+            chain.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the node chain with full nodes holding the first n elements
+     * of a. Waits for every {@code set} that validated before the chain write
+     * lock was taken first, as it may write to any of the old nodes.
+     */
+    @SuppressWarnings("unchecked")
+    private void rebuild(Object[] a, int n) {
+        for (Node<E> x = first; x != null; x = x.next)
+            x.lock.unlockWrite(x.lock.writeLock());
+        first = last = null;
+        size = 0;
+        for (int i = 0; i < n; i++)
+            linkLast((E) a[i]);
+    }
+
+    /**
+     * Returns a snapshot iterator over the elements in this list in proper
+     * sequence. It does not support {@code remove}.
+     *
+     * @return an iterator over the elements in this list in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Snapshot<E>(toArray(), 0);
+    }
+
+    public ListIterator<E> listIterator() {
+        return new Snapshot<E>(toArray(), 0);
+    }
+
+    public ListIterator<E> listIterator(int index) {
+        final Object[] elements = toArray();
+        if (index < 0 || index > elements.length)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index, elements.length));
+        return new Snapshot<E>(elements, index);
+    }
+
+    /**
+     * Read-only list iterator over a snapshot array.
+     */
+    private static final class Snapshot<E> implements ListIterator<E> {
+        private final Object[] elements;
+        private int cursor;
+
+        Snapshot(Object[] elements, int cursor) {
+            this.elements = elements;
+            this.cursor = cursor;
+        }
+
+        public boolean hasNext() {
+            return cursor < elements.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return (E) elements[cursor++];
+        }
+
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E previous() {
+            if (!hasPrevious())
+                throw new NoSuchElementException();
+            return (E) elements[--cursor];
+        }
+
+        public int nextIndex() {
+            return cursor;
+        }
+
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void set(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void add(E e) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // Chain operations, only called while holding the chain write lock
+
+    /**
+     * Returns the node holding the element at the given index and sets
+     * {@link #nodeIndex} to its start index.
+     */
+    private Node<E> node(int index) {
+        Node<E> x;
+        int i;
+        if (index < (size >> 1)) {
+            x = first;
+            i = 0;
+            while (index >= i + x.numElements) {
+                i += x.numElements;
+                x = x.next;
+            }
+        } else {
+            x = last;
+            i = size - x.numElements;
+            while (index < i) {
+                x = x.prev;
+                i -= x.numElements;
+            }
+        }
+        nodeIndex = i;
+        return x;
+    }
+
+    private void linkLast(E e) {
+        Node<E> l = last;
+        if (l == null || l.numElements == nodeCapacity) {
+            final Node<E> n = new Node<E>(nodeCapacity);
+            n.prev = l;
+            if (l == null)
+                first = n;
+            else
+                l.next = n;
+            last = n;
+            l = n;
+        }
+        final long ns = l.lock.writeLock();
+        try {
+            l.items[l.numElements++] = e;
+        } finally {
+            l.lock.unlockWrite(ns);
+        }
+        size++;
+    }
+
+    /**
+     * Inserts the elements of a before the element at index, which is not
+     * size: splits the node holding it at that element, fills up the front
+     * part and links full nodes with the rest in between.
+     */
+    @SuppressWarnings("unchecked")
+    private void linkAll(int index, Object[] a) {
+        final Node<E> x = node(index);
+        final int offset = index - nodeIndex;
+        Node<E> pred = x.prev;
+        Node<E> succ = x;
+        int k = 0;
+        if (offset > 0) {
+            final Node<E> t = new Node<E>(nodeCapacity);
+            final long ns = x.lock.writeLock();
+            try {
+                final int move = x.numElements - offset;
+                System.arraycopy(x.items, offset, t.items, 0, move);
+                Arrays.fill(x.items, offset, x.numElements, null);
+                t.numElements = move;
+                k = Math.min(a.length, nodeCapacity - offset);
+                System.arraycopy(a, 0, x.items, offset, k);
+                x.numElements = offset + k;
+            } finally {
+                x.lock.unlockWrite(ns);
+            }
+            // t is not reachable by any set yet, no need to lock it
+            t.prev = x;
+            t.next = x.next;
+            if (x.next == null)
+                last = t;
+            else
+                x.next.prev = t;
+            x.next = t;
+            pred = x;
+            succ = t;
+        }
+        for (; k < a.length; k += nodeCapacity) {
+            final Node<E> n = new Node<E>(nodeCapacity);
+            final int len = Math.min(nodeCapacity, a.length - k);
+            System.arraycopy(a, k, n.items, 0, len);
+            n.numElements = len;
+            n.prev = pred;
+            n.next = succ;
+            if (pred == null)
+                first = n;
+            else
+                pred.next = n;
+            succ.prev = n;
+            pred = n;
+        }
+        size += a.length;
+    }
+
+    /**
+     * Inserts e at offset of node x, splitting x in two first if it is full.
+     */
+    private void linkBefore(Node<E> x, int offset, E e) {
+        final long ns = x.lock.writeLock();
+        try {
+            if (x.numElements == nodeCapacity) {
+                final Node<E> n = new Node<E>(nodeCapacity);
+                final int keep = nodeCapacity >> 1;
+                final int move = nodeCapacity - keep;
+                System.arraycopy(x.items, keep, n.items, 0, move);
+                Arrays.fill(x.items, keep, nodeCapacity, null);
+                x.numElements = keep;
+                n.numElements = move;
+                n.prev = x;
+                n.next = x.next;
+                if (x.next == null)
+                    last = n;
+                else
+                    x.next.prev = n;
+                x.next = n;
+                if (offset > keep) {
+                    // n is not reachable by any set yet, no need to lock it
+                    insert(n, offset - keep, e);
+                    size++;
+                    return;
+                }
+            }
+            insert(x, offset, e);
+            size++;
+        } finally {
+            x.lock.unlockWrite(ns);
+        }
+    }
+
+    private static <E> void insert(Node<E> x, int offset, E e) {
+        System.arraycopy(x.items, offset, x.items, offset + 1, x.numElements - offset);
+        x.items[offset] = e;
+        x.numElements++;
+    }
+
+    /**
+     * Removes the element at offset of node x, then drops x if it became
+     * empty or merges it with a neighbour if it fell to half of its capacity.
+     */
+    private E unlink(Node<E> x, int offset) {
+        final E e;
+        long ns = x.lock.writeLock();
+        try {
+            e = x.items[offset];
+            final int n = --x.numElements;
+            System.arraycopy(x.items, offset + 1, x.items, offset, n - offset);
+            x.items[n] = null;
+        } finally {
+            x.lock.unlockWrite(ns);
+        }
+        size--;
+
+        if (x.numElements == 0) {
+            unlinkNode(x);
+        } else if (x.numElements <= (nodeCapacity >> 1)) {
+            final Node<E> prev = x.prev;
+            final Node<E> next = x.next;
+            if (prev != null && prev.numElements + x.numElements <= nodeCapacity)
+                merge(prev, x);
+            else if (next != null && x.numElements + next.numElements <= nodeCapacity)
+                merge(x, next);
+        }
+        return e;
+    }
+
+    /**
+     * Moves the elements of node b to the end of its predecessor a and drops
+     * b, holding the locks of both.
+     */
+    private void merge(Node<E> a, Node<E> b) {
+        final long sa = a.lock.writeLock();
+        final long sb = b.lock.writeLock();
+        try {
+            System.arraycopy(b.items, 0, a.items, a.numElements, b.numElements);
+            a.numElements += b.numElements;
+        } finally {
+            b.lock.unlockWrite(sb);
+            a.lock.unlockWrite(sa);
+        }
+        unlinkNode(b);
+    }
+
+    /**
+     * Unlinks node x from the chain. Its fields are left alone: a set that
+     * located x before the chain changed fails its validation and retries.
+     */
+    private void unlinkNode(Node<E> x) {
+        final Node<E> prev = x.prev;
+        final Node<E> next = x.next;
+        if (prev == null)
+            first = next;
+        else
+            prev.next = next;
+        if (next == null)
+            last = prev;
+        else
+            next.prev = prev;
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index, size));
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index, size));
+    }
+
+    private static String outOfBoundsMsg(int index, int size) {
+        return "Index: " + index + ", Size: " + size;
+    }
+
+    private static final class Node<E> {
+        final E[] items;
+        final StampedLock lock = new StampedLock();
+        int numElements;
+        Node<E> next;
+        Node<E> prev;
+
+        @SuppressWarnings("unchecked")
+        Node(int capacity) {
+            this.items = (E[]) new Object[capacity];
+        }
+    }
+}
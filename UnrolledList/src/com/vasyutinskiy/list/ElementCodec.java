@@ -0,0 +1,199 @@
+package com.vasyutinskiy.list;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encoding of the elements of a list for
+ * {@link UnrolledLinkedList#writeTo(DataOutput, ElementCodec)} and
+ * {@link UnrolledLinkedList#readFrom(DataInput, ElementCodec)}.
+ * <p/>
+ * <p>The list hands elements to its codec one node at a time, through
+ * {@link #writeChunk} and {@link #readChunk}. By default they encode element
+ * by element; codecs of fixed size values override them to move a whole
+ * node with a single {@code write} or {@code readFully} of a byte array.
+ * Either way a chunk must encode as its elements written one after the
+ * other: nodes are written as they are and read back fully packed, so the
+ * chunks read do not line up with the chunks written.
+ * <p/>
+ * <p>The built-in codecs do not accept null elements; wrap one with
+ * {@link #nullable} to allow them.
+ *
+ * @param <E> the type of elements encoded
+ */
+public interface ElementCodec<E> {
+
+    /**
+     * Writes element e to out.
+     *
+     * @param out the output to write to
+     * @param e   the element to write
+     * @throws IOException if writing fails
+     */
+    void write(DataOutput out, E e) throws IOException;
+
+    /**
+     * Reads an element written by {@link #write} from in.
+     *
+     * @param in the input to read from
+     * @return the element read
+     * @throws IOException if reading fails
+     */
+    E read(DataInput in) throws IOException;
+
+    /**
+     * Writes the {@code len} elements of items starting at {@code off} to out.
+     *
+     * @param out   the output to write to
+     * @param items the array holding the elements
+     * @param off   the index of the first element to write
+     * @param len   the number of elements to write
+     * @throws IOException if writing fails
+     */
+    @SuppressWarnings("unchecked")
+    default void writeChunk(DataOutput out, Object[] items, int off, int len) throws IOException {
+        for (int i = off, end = off + len; i < end; i++)
+            write(out, (E) items[i]);
+    }
+
+    /**
+     * Reads {@code len} elements written by {@link #writeChunk} from in into
+     * items, starting at {@code off}.
+     *
+     * @param in    the input to read from
+     * @param items the array to store the elements in
+     * @param off   the index to store the first element at
+     * @param len   the number of elements to read
+     * @throws IOException if reading fails
+     */
+    default void readChunk(DataInput in, Object[] items, int off, int len) throws IOException {
+        for (int i = off, end = off + len; i < end; i++)
+            items[i] = read(in);
+    }
+
+    /**
+     * Strings in modified UTF-8, as {@link DataOutput#writeUTF} writes them.
+     */
+    ElementCodec<String> STRING = new ElementCodec<String>() {
+        public void write(DataOutput out, String e) throws IOException {
+            out.writeUTF(e);
+        }
+
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    /**
+     * Integers as 4 big-endian bytes, a node at a time.
+     */
+    ElementCodec<Integer> INTEGER = new ElementCodec<Integer>() {
+        public void write(DataOutput out, Integer e) throws IOException {
+            out.writeInt(e);
+        }
+
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+
+        @Override
+        public void writeChunk(DataOutput out, Object[] items, int off, int len) throws IOException {
+            final byte[] b = new byte[len << 2];
+            for (int i = 0, p = 0; i < len; i++, p += 4)
+                Codecs.putInt(b, p, (Integer) items[off + i]);
+            out.write(b);
+        }
+
+        @Override
+        public void readChunk(DataInput in, Object[] items, int off, int len) throws IOException {
+            final byte[] b = new byte[len << 2];
+            in.readFully(b);
+            for (int i = 0, p = 0; i < len; i++, p += 4)
+                items[off + i] = Codecs.getInt(b, p);
+        }
+    };
+
+    /**
+     * Longs as 8 big-endian bytes, a node at a time.
+     */
+    ElementCodec<Long> LONG = new ElementCodec<Long>() {
+        public void write(DataOutput out, Long e) throws IOException {
+            out.writeLong(e);
+        }
+
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+
+        @Override
+        public void writeChunk(DataOutput out, Object[] items, int off, int len) throws IOException {
+            final byte[] b = new byte[len << 3];
+            for (int i = 0, p = 0; i < len; i++, p += 8)
+                Codecs.putLong(b, p, (Long) items[off + i]);
+            out.write(b);
+        }
+
+        @Override
+        public void readChunk(DataInput in, Object[] items, int off, int len) throws IOException {
+            final byte[] b = new byte[len << 3];
+            in.readFully(b);
+            for (int i = 0, p = 0; i < len; i++, p += 8)
+                items[off + i] = Codecs.getLong(b, p);
+        }
+    };
+
+    /**
+     * Doubles as the 8 big-endian bytes of their raw bits, a node at a time.
+     */
+    ElementCodec<Double> DOUBLE = new ElementCodec<Double>() {
+        public void write(DataOutput out, Double e) throws IOException {
+            out.writeDouble(e);
+        }
+
+        public Double read(DataInput in) throws IOException {
+            return in.readDouble();
+        }
+
+        @Override
+        public void writeChunk(DataOutput out, Object[] items, int off, int len) throws IOException {
+            final byte[] b = new byte[len << 3];
+            for (int i = 0, p = 0; i < len; i++, p += 8)
+                Codecs.putLong(b, p, Double.doubleToRawLongBits((Double) items[off + i]));
+            out.write(b);
+        }
+
+        @Override
+        public void readChunk(DataInput in, Object[] items, int off, int len) throws IOException {
+            final byte[] b = new byte[len << 3];
+            in.readFully(b);
+            for (int i = 0, p = 0; i < len; i++, p += 8)
+                items[off + i] = Double.longBitsToDouble(Codecs.getLong(b, p));
+        }
+    };
+
+    /**
+     * Returns a codec writing a presence flag before every element, so null
+     * elements can be written and read back.
+     *
+     * @param codec the codec of the non-null elements
+     * @param <E>   the type of elements encoded
+     * @return a codec accepting null elements
+     * @throws NullPointerException if {@code codec} is null
+     */
+    static <E> ElementCodec<E> nullable(final ElementCodec<E> codec) {
+        if (codec == null)
+            throw new NullPointerException();
+        return new ElementCodec<E>() {
+            public void write(DataOutput out, E e) throws IOException {
+                out.writeBoolean(e != null);
+                if (e != null)
+                    codec.write(out, e);
+            }
+
+            public E read(DataInput in) throws IOException {
+                return in.readBoolean() ? codec.read(in) : null;
+            }
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package com.vasyutinskiy.list;
+
+/**
+ * Counters an {@link UnrolledLinkedList} with enabled metrics keeps about
+ * its splits, merges and node walks. The list calls them from the paths
+ * that do the work, so they are plain fields guarded by the list, like the
+ * rest of its state.
+ * <p/>
+ * <p>Every recorded split, merge and long walk also commits a JDK Flight
+ * Recorder event, see {@code ListEvents} in {@code src-jfr}, if the running
+ * JDK has the {@code jdk.jfr} module, {@code ListEvents} is on the class
+ * path and a recording enabled the event. Nothing here refers to
+ * {@code jdk.jfr}, so {@code src} builds for Java 8.
+ */
+final class ListMetrics {
+
+    /**
+     * The Flight Recorder events, or null if {@code jdk.jfr} or
+     * {@code ListEvents} is not there.
+     */
+    private static final Events EVENTS = loadEvents();
+
+    long splits;
+    long merges;
+    long lookups;
+    long nodesWalked;
+    long longWalks;
+    int maxWalk;
+
+    /**
+     * Receiver of the events of {@link ListMetrics}, implemented by
+     * {@code ListEvents}.
+     */
+    interface Events {
+        void split(int nodeCapacity, int size, boolean towardsHead, boolean newNode);
+
+        void merge(int nodeCapacity, int size, int merged);
+
+        void longWalk(int nodeCapacity, int size, int index, int walked);
+    }
+
+    private static Events loadEvents() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Events) Class.forName("com.vasyutinskiy.list.ListEvents")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records the split of a full node of a list of the given size.
+     */
+    void split(int nodeCapacity, int size, boolean towardsHead, boolean newNode) {
+        splits++;
+        if (EVENTS != null)
+            EVENTS.split(nodeCapacity, size, towardsHead, newNode);
+    }
+
+    /**
+     * Records the merge of a node holding the given number of elements into
+     * a neighbour.
+     */
+    void merge(int nodeCapacity, int size, int merged) {
+        merges++;
+        if (EVENTS != null)
+            EVENTS.merge(nodeCapacity, size, merged);
+    }
+
+    /**
+     * Records a positional lookup for the given index that stepped over
+     * walked nodes.
+     */
+    void walk(int nodeCapacity, int size, int index, int walked) {
+        lookups++;
+        nodesWalked += walked;
+        if (walked > maxWalk)
+            maxWalk = walked;
+        if (walked >= UnrolledLinkedList.LONG_WALK_NODES) {
+            longWalks++;
+            if (EVENTS != null)
+                EVENTS.longWalk(nodeCapacity, size, index, walked);
+        }
+    }
+}
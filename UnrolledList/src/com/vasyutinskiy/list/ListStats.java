@@ -0,0 +1,171 @@
+package com.vasyutinskiy.list;
+
+import java.util.Arrays;
+
+/**
+ * Point-in-time view of the node structure of an {@link UnrolledLinkedList}
+ * and of the counters it keeps while its metrics are enabled, as returned
+ * by {@link UnrolledLinkedList#stats()}.
+ * <p/>
+ * <p>The counters are all 0 for a list whose metrics are disabled.
+ */
+public final class ListStats {
+
+    private final int size;
+    private final int nodeCapacity;
+    private final int nodeCount;
+    private final int[] fillHistogram;
+    private final long splits;
+    private final long merges;
+    private final long lookups;
+    private final long nodesWalked;
+    private final long longWalks;
+    private final int maxWalk;
+
+    ListStats(int size, int nodeCapacity, int nodeCount, int[] fillHistogram, ListMetrics metrics) {
+        this.size = size;
+        this.nodeCapacity = nodeCapacity;
+        this.nodeCount = nodeCount;
+        this.fillHistogram = fillHistogram;
+        if (metrics != null) {
+            splits = metrics.splits;
+            merges = metrics.merges;
+            lookups = metrics.lookups;
+            nodesWalked = metrics.nodesWalked;
+            longWalks = metrics.longWalks;
+            maxWalk = metrics.maxWalk;
+        } else {
+            splits = merges = lookups = nodesWalked = longWalks = 0;
+            maxWalk = 0;
+        }
+    }
+
+    /**
+     * Returns the number of elements of the list.
+     *
+     * @return the size of the list
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of elements a single node of the list holds.
+     *
+     * @return the node capacity of the list
+     */
+    public int getNodeCapacity() {
+        return nodeCapacity;
+    }
+
+    /**
+     * Returns the number of nodes of the list.
+     *
+     * @return the node count of the list
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the share of the element slots of the nodes that hold an
+     * element, 1 for an empty list.
+     *
+     * @return the fill factor of the list
+     */
+    public double getFillFactor() {
+        return (nodeCount == 0) ? 1 : (double) size / ((long) nodeCount * nodeCapacity);
+    }
+
+    /**
+     * Returns the fill distribution of the nodes: element {@code i} of the
+     * returned array is the number of nodes holding {@code i} elements, for
+     * {@code i} from 0 to the node capacity.
+     *
+     * @return a new array holding the fill histogram
+     */
+    public int[] getFillHistogram() {
+        return fillHistogram.clone();
+    }
+
+    /**
+     * Returns the number of times a full node was split.
+     *
+     * @return the number of splits
+     */
+    public long getSplits() {
+        return splits;
+    }
+
+    /**
+     * Returns the number of times a node was merged into a neighbour.
+     *
+     * @return the number of merges
+     */
+    public long getMerges() {
+        return merges;
+    }
+
+    /**
+     * Returns the number of positional lookups that walked the node chain.
+     *
+     * @return the number of walking lookups
+     */
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Returns the number of nodes positional lookups stepped over in total.
+     *
+     * @return the number of nodes walked
+     */
+    public long getNodesWalked() {
+        return nodesWalked;
+    }
+
+    /**
+     * Returns the average number of nodes a lookup walking the node chain
+     * stepped over.
+     *
+     * @return the mean walk length, 0 if there were no such lookups
+     */
+    public double getMeanWalk() {
+        return (lookups == 0) ? 0 : (double) nodesWalked / lookups;
+    }
+
+    /**
+     * Returns the largest number of nodes a single lookup stepped over.
+     *
+     * @return the longest walk
+     */
+    public int getMaxWalk() {
+        return maxWalk;
+    }
+
+    /**
+     * Returns the number of lookups that stepped over at least
+     * {@link UnrolledLinkedList#LONG_WALK_NODES} nodes.
+     *
+     * @return the number of long walks
+     */
+    public long getLongWalks() {
+        return longWalks;
+    }
+
+    @Override
+    public String toString() {
+        return "ListStats{size=" + size +
+                ", nodeCapacity=" + nodeCapacity +
+                ", nodeCount=" + nodeCount +
+                ", fillFactor=" + String.format("%.3f", getFillFactor()) +
+                ", splits=" + splits +
+                ", merges=" + merges +
+                ", lookups=" + lookups +
+                ", meanWalk=" + String.format("%.2f", getMeanWalk()) +
+                ", maxWalk=" + maxWalk +
+                ", longWalks=" + longWalks +
+                ", fillHistogram=" + Arrays.toString(fillHistogram) +
+                '}';
+    }
+}
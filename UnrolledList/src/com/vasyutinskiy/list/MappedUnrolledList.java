@@ -0,0 +1,666 @@
+package com.vasyutinskiy.list;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.function.Consumer;
+
+/**
+ * Unrolled linked list of fixed-width records kept in a memory-mapped file
+ * instead of on the heap.
+ * <p/>
+ * <p>Every node is a region of the file holding its element count, the
+ * numbers of its neighbours and room for {@code nodeCapacity} records of
+ * {@link RecordCodec#width} bytes. Nodes are split and merged the same way
+ * as in {@link UnrolledLinkedList}, and positional access walks the node
+ * chain from the nearer end or from the node of the last lookup. Elements
+ * are decoded straight from the mapping and only exist on the heap while
+ * they are being used.
+ * <p/>
+ * <p>The file is mapped in segments of about {@value #SEGMENT_BYTES} bytes,
+ * and a new segment is mapped, growing the file, when the nodes run out.
+ * Regions of dropped nodes are kept on a free list in the file and reused.
+ * As the size and the chain live in the file as well, constructing a list
+ * over an existing file reopens it as it was, without reading the elements.
+ * <p/>
+ * <p>Changes go to the mapping and reach the file whenever the operating
+ * system writes the pages back; {@link #force} writes them back at once.
+ * A list whose file was not forced before a crash may be left inconsistent.
+ * <p/>
+ * <p>Like {@link UnrolledLinkedList} this class is not synchronized, and at
+ * most one list at a time may use a given file.
+ *
+ * @param <E> the type of elements held in this list
+ */
+public class MappedUnrolledList<E> extends AbstractList<E> implements Closeable {
+
+    /**
+     * Number of bytes of the file mapped at a time.
+     */
+    static final int SEGMENT_BYTES = 1 << 24;
+
+    private static final int MAGIC = 0x554C4D31; // "ULM1"
+    private static final int NIL = -1;
+
+    // File header layout
+    private static final int HEADER_BYTES = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_WIDTH = 4;
+    private static final int H_NODE_CAPACITY = 8;
+    private static final int H_SIZE = 12;
+    private static final int H_FIRST = 16;
+    private static final int H_LAST = 20;
+    private static final int H_NODE_SLOTS = 24;
+    private static final int H_FREE = 28;
+
+    // Node region layout; the records follow the node header
+    private static final int NODE_HEADER_BYTES = 16;
+    private static final int N_COUNT = 0;
+    private static final int N_NEXT = 4;
+    private static final int N_PREV = 8;
+
+    private final FileChannel channel;
+    private final RecordCodec<E> codec;
+    private final int width;
+    private final int nodeCapacity;
+    private final int nodeBytes;
+    private final int nodesPerSegment;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    private int segmentCount;
+
+    /**
+     * Scratch space for moving records between and within nodes.
+     */
+    private final byte[] scratch;
+
+    // Copies of the header fields, written back by storeHeader
+    private int size;
+    private int first;
+    private int last;
+    private int nodeSlots;
+    private int freeHead;
+
+    /**
+     * Node the last positional lookup resolved, or NIL, and the index of
+     * its first element; the same finger {@link UnrolledLinkedList} keeps.
+     */
+    private int finger = NIL;
+    private int fingerIndex;
+
+    /**
+     * Opens the list held by the given file, or creates an empty one with the
+     * default node capacity if the file does not exist or is empty.
+     *
+     * @param file  the file holding the list
+     * @param codec the codec the records are encoded with
+     * @throws IOException          if the file cannot be opened or mapped, or
+     *                              holds something else than a list of
+     *                              records of the width of the codec
+     * @throws NullPointerException if {@code file} or {@code codec} is null
+     */
+    public MappedUnrolledList(Path file, RecordCodec<E> codec) throws IOException {
+        this(file, codec, UnrolledLinkedList.DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Opens the list held by the given file, or creates an empty one whose
+     * nodes hold {@code nodeCapacity} records if the file does not exist or
+     * is empty. A list that is reopened keeps the node capacity it was
+     * created with.
+     *
+     * @param file         the file holding the list
+     * @param codec        the codec the records are encoded with
+     * @param nodeCapacity the number of records a single node of a new list
+     *                     holds
+     * @throws IOException              if the file cannot be opened or mapped,
+     *                                  or holds something else than a list of
+     *                                  records of the width of the codec
+     * @throws IllegalArgumentException if {@code nodeCapacity} is less than 2
+     *                                  or a node would not fit in a segment
+     * @throws NullPointerException     if {@code file} or {@code codec} is null
+     */
+    public MappedUnrolledList(Path file, RecordCodec<E> codec, int nodeCapacity) throws IOException {
+        if (codec == null)
+            throw new NullPointerException();
+        if (nodeCapacity < 2)
+            throw new IllegalArgumentException("Illegal node capacity: " + nodeCapacity);
+        final int width = codec.width();
+        if (width < 1)
+            throw new IllegalArgumentException("Illegal record width: " + width);
+        this.codec = codec;
+        this.width = width;
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        try {
+            final boolean created = channel.size() == 0;
+            if (!created && channel.size() < HEADER_BYTES)
+                throw new IOException("Not an unrolled list file: " + file);
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            if (created) {
+                header.putInt(H_MAGIC, MAGIC);
+                header.putInt(H_WIDTH, width);
+                header.putInt(H_NODE_CAPACITY, nodeCapacity);
+                header.putInt(H_FIRST, NIL);
+                header.putInt(H_LAST, NIL);
+                header.putInt(H_FREE, NIL);
+            } else if (header.getInt(H_MAGIC) != MAGIC) {
+                throw new IOException("Not an unrolled list file: " + file);
+            } else if (header.getInt(H_WIDTH) != width) {
+                throw new IOException("Record width of " + file + " is " + header.getInt(H_WIDTH)
+                        + ", not " + width);
+            }
+            this.nodeCapacity = header.getInt(H_NODE_CAPACITY);
+            if (this.nodeCapacity < 2)
+                throw new IOException("Illegal node capacity of " + file + ": " + this.nodeCapacity);
+            if ((long) this.nodeCapacity * width > SEGMENT_BYTES - NODE_HEADER_BYTES)
+                throw new IllegalArgumentException("Node of " + this.nodeCapacity + " records of "
+                        + width + " bytes does not fit in a segment");
+            nodeBytes = NODE_HEADER_BYTES + this.nodeCapacity * width;
+            nodesPerSegment = SEGMENT_BYTES / nodeBytes;
+            scratch = new byte[this.nodeCapacity * width];
+            size = header.getInt(H_SIZE);
+            first = header.getInt(H_FIRST);
+            last = header.getInt(H_LAST);
+            nodeSlots = header.getInt(H_NODE_SLOTS);
+            freeHead = header.getInt(H_FREE);
+            segments = new MappedByteBuffer[Math.max(4, (nodeSlots + nodesPerSegment - 1) / nodesPerSegment)];
+            while (segmentCount * nodesPerSegment < nodeSlots)
+                mapSegment();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of records a single node of this list holds.
+     *
+     * @return the node capacity of this list
+     */
+    public int getNodeCapacity() {
+        return nodeCapacity;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link java.util.Collection#add})
+     * @throws UncheckedIOException if the file cannot be grown
+     */
+    public boolean add(E e) {
+        linkLast(e);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this list.
+     * Shifts the element currently at that position (if any) and any
+     * subsequent elements to the right (adds one to their indices).
+     *
+     * @param index   index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *                                   ({@code index < 0 || index > size()})
+     * @throws UncheckedIOException      if the file cannot be grown
+     */
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+
+        if (index == size)
+            linkLast(element);
+        else {
+            int x = node(index);
+            linkBefore(x, index - fingerIndex, element);
+        }
+    }
+
+    /**
+     * Returns the element at the specified position in this list, decoded
+     * from the mapping.
+     *
+     * @param index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *                                   ({@code index < 0 || index >= size()})
+     */
+    public E get(int index) {
+        checkElementIndex(index);
+        int x = node(index);
+        return read(x, index - fingerIndex);
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with the
+     * specified element.
+     *
+     * @param index   index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *                                   ({@code index < 0 || index >= size()})
+     */
+    public E set(int index, E element) {
+        checkElementIndex(index);
+        int x = node(index);
+        int offset = index - fingerIndex;
+        E oldVal = read(x, offset);
+        write(x, offset, element);
+        return oldVal;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.  Shifts any
+     * subsequent elements to the left (subtracts one from their indices).
+     *
+     * @param index the index of the element to be removed
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *                                   ({@code index < 0 || index >= size()})
+     */
+    public E remove(int index) {
+        checkElementIndex(index);
+        int x = node(index);
+        return unlink(x, index - fingerIndex);
+    }
+
+    /**
+     * Removes all of the elements from this list. Every node region goes to
+     * the free list; the file keeps its length.
+     */
+    public void clear() {
+        for (int x = first; x != NIL; ) {
+            final int next = next(x);
+            freeNode(x);
+            x = next;
+        }
+        first = last = finger = NIL;
+        size = 0;
+        modCount++;
+        storeHeader();
+    }
+
+    /**
+     * Performs the given action for each element of this list, in order,
+     * walking the node chain once.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        final int expectedModCount = modCount;
+        for (int x = first; x != NIL && modCount == expectedModCount; x = next(x)) {
+            final ByteBuffer buf = segment(x);
+            final int base = base(x) + NODE_HEADER_BYTES;
+            final int n = count(x);
+            for (int i = 0; i < n; i++)
+                action.accept(codec.read(buf, base + i * width));
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Writes every change to this list still held in memory back to the
+     * file.
+     */
+    public void force() {
+        header.force();
+        for (int s = 0; s < segmentCount; s++)
+            segments[s].force();
+    }
+
+    /**
+     * Writes every change back to the file, see {@link #force}, and closes
+     * it. The list must not be used afterwards; the mapping itself is
+     * released once the list is garbage collected.
+     *
+     * @throws IOException if closing the file fails
+     */
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            force();
+            segments = null;
+            channel.close();
+        }
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: " + index + ", Size: " + size;
+    }
+
+    /**
+     * Returns the node at the specified element index and moves the finger
+     * to it, so that the element is at offset {@code index - fingerIndex}.
+     */
+    private int node(int index) {
+        // assert isElementIndex(index);
+        int x = finger;
+        int i = fingerIndex;
+        if (x != NIL && index >= i && index < i + count(x))
+            return x;
+
+        int distance = (x == NIL) ? size : Math.abs(index - i);
+        final int fromLast = size - 1 - index;
+        if (index <= fromLast && index < distance) {
+            x = first;
+            i = 0;
+        } else if (fromLast < distance) {
+            x = last;
+            i = size - count(x);
+        }
+
+        while (index < i) {
+            x = prev(x);
+            i -= count(x);
+        }
+        int n;
+        while (index >= i + (n = count(x))) {
+            i += n;
+            x = next(x);
+        }
+        finger = x;
+        fingerIndex = i;
+        return x;
+    }
+
+    // Node chain maintenance, mirroring UnrolledLinkedList
+
+    private void linkLast(E e) {
+        int l = last;
+        if (l == NIL || count(l) == nodeCapacity) {
+            l = newNode();
+            linkNodeAfter(last, l);
+        }
+        final int n = count(l);
+        write(l, n, e);
+        setCount(l, n + 1);
+        size++;
+        modCount++;
+        storeHeader();
+    }
+
+    private void linkBefore(int x, int offset, E e) {
+        if (finger != x)
+            finger = NIL;
+        if (count(x) == nodeCapacity) {
+            final int half = nodeCapacity >> 1;
+            if (offset < half) {
+                moveHalfToPrev(x);
+                int p = prev(x);
+                insert(p, count(p) - half + offset, e);
+                if (finger == x)
+                    fingerIndex++;
+            } else {
+                moveHalfToNext(x);
+                if (offset > half)
+                    insert(next(x), offset - half, e);
+                else
+                    insert(x, offset, e);
+            }
+        } else {
+            insert(x, offset, e);
+        }
+        size++;
+        modCount++;
+        storeHeader();
+    }
+
+    private E unlink(int x, int offset) {
+        if (finger != x)
+            finger = NIL;
+        final E element = read(x, offset);
+        final int n = count(x) - 1;
+        moveRecords(x, offset + 1, x, offset, n - offset);
+        setCount(x, n);
+        if (n == 0)
+            unlinkNode(x);
+        else if (n <= (nodeCapacity >> 1))
+            rearrangeElementsWithAdjacent(x);
+        size--;
+        modCount++;
+        storeHeader();
+        return element;
+    }
+
+    /**
+     * Inserts e at offset of node x, which must have room for it.
+     */
+    private void insert(int x, int offset, E e) {
+        final int n = count(x);
+        moveRecords(x, offset, x, offset + 1, n - offset);
+        write(x, offset, e);
+        setCount(x, n + 1);
+    }
+
+    private void linkNodeAfter(int pred, int n) {
+        final int succ = (pred == NIL) ? first : next(pred);
+        setPrev(n, pred);
+        setNext(n, succ);
+        if (pred == NIL)
+            first = n;
+        else
+            setNext(pred, n);
+        if (succ == NIL)
+            last = n;
+        else
+            setPrev(succ, n);
+    }
+
+    private void unlinkNode(int x) {
+        final int prev = prev(x);
+        final int next = next(x);
+        // an emptied node starts where its successor does
+        if (finger == x)
+            finger = (count(x) == 0) ? next : NIL;
+        if (prev == NIL)
+            first = next;
+        else
+            setNext(prev, next);
+        if (next == NIL)
+            last = prev;
+        else
+            setPrev(next, prev);
+        freeNode(x);
+    }
+
+    private void moveHalfToNext(int x) {
+        final int keep = nodeCapacity >> 1;
+        final int move = count(x) - keep;
+        int next = next(x);
+        if (next == NIL || count(next) + move >= nodeCapacity) {
+            next = newNode();
+            linkNodeAfter(x, next);
+        } else if (finger == next) {
+            fingerIndex -= move;
+        }
+
+        final int n = count(next);
+        moveRecords(next, 0, next, move, n);
+        moveRecords(x, keep, next, 0, move);
+        setCount(next, n + move);
+        setCount(x, keep);
+    }
+
+    private void moveHalfToPrev(int x) {
+        final int move = nodeCapacity >> 1;
+        final int keep = count(x) - move;
+        int prev = prev(x);
+        if (prev == NIL || count(prev) + move >= nodeCapacity) {
+            prev = newNode();
+            linkNodeAfter(prev(x), prev);
+        }
+        if (finger == x)
+            fingerIndex += move;
+
+        final int n = count(prev);
+        moveRecords(x, 0, prev, n, move);
+        moveRecords(x, move, x, 0, keep);
+        setCount(prev, n + move);
+        setCount(x, keep);
+    }
+
+    private void rearrangeElementsWithAdjacent(int x) {
+        final int prev = prev(x);
+        final int next = next(x);
+        final int n = count(x);
+        if (prev != NIL && count(prev) + n <= nodeCapacity) {
+            final int p = count(prev);
+            if (finger == x) {
+                finger = prev;
+                fingerIndex -= p;
+            }
+            moveRecords(x, 0, prev, p, n);
+            setCount(prev, p + n);
+            unlinkNode(x);
+        } else if (next != NIL && n + count(next) <= nodeCapacity) {
+            if (finger == next) {
+                finger = x;
+                fingerIndex -= n;
+            }
+            moveRecords(next, 0, x, n, count(next));
+            setCount(x, n + count(next));
+            unlinkNode(next);
+        }
+    }
+
+    // Node regions
+
+    /**
+     * Returns an empty node region, from the free list if it has one and
+     * from a new segment if every mapped one is in use.
+     */
+    private int newNode() {
+        int x = freeHead;
+        if (x != NIL) {
+            freeHead = next(x);
+        } else {
+            x = nodeSlots;
+            if (x == segmentCount * nodesPerSegment) {
+                try {
+                    mapSegment();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            nodeSlots++;
+        }
+        setCount(x, 0);
+        return x;
+    }
+
+    /**
+     * Puts the region of dropped node x on the free list.
+     */
+    private void freeNode(int x) {
+        setCount(x, 0);
+        setPrev(x, NIL);
+        setNext(x, freeHead);
+        freeHead = x;
+    }
+
+    private void mapSegment() throws IOException {
+        final long segmentBytes = (long) nodesPerSegment * nodeBytes;
+        if (segmentCount == segments.length)
+            segments = Arrays.copyOf(segments, segmentCount << 1);
+        segments[segmentCount] = channel.map(FileChannel.MapMode.READ_WRITE,
+                HEADER_BYTES + segmentCount * segmentBytes, segmentBytes);
+        segmentCount++;
+    }
+
+    private void storeHeader() {
+        header.putInt(H_SIZE, size);
+        header.putInt(H_FIRST, first);
+        header.putInt(H_LAST, last);
+        header.putInt(H_NODE_SLOTS, nodeSlots);
+        header.putInt(H_FREE, freeHead);
+    }
+
+    private ByteBuffer segment(int x) {
+        return segments[x / nodesPerSegment];
+    }
+
+    private int base(int x) {
+        return (x % nodesPerSegment) * nodeBytes;
+    }
+
+    private int count(int x) {
+        return segment(x).getInt(base(x) + N_COUNT);
+    }
+
+    private void setCount(int x, int n) {
+        segment(x).putInt(base(x) + N_COUNT, n);
+    }
+
+    private int next(int x) {
+        return segment(x).getInt(base(x) + N_NEXT);
+    }
+
+    private void setNext(int x, int next) {
+        segment(x).putInt(base(x) + N_NEXT, next);
+    }
+
+    private int prev(int x) {
+        return segment(x).getInt(base(x) + N_PREV);
+    }
+
+    private void setPrev(int x, int prev) {
+        segment(x).putInt(base(x) + N_PREV, prev);
+    }
+
+    private E read(int x, int offset) {
+        return codec.read(segment(x), base(x) + NODE_HEADER_BYTES + offset * width);
+    }
+
+    private void write(int x, int offset, E e) {
+        codec.write(segment(x), base(x) + NODE_HEADER_BYTES + offset * width, e);
+    }
+
+    /**
+     * Moves n records from srcOffset of node src to dstOffset of node dst.
+     * The ranges may overlap.
+     */
+    private void moveRecords(int src, int srcOffset, int dst, int dstOffset, int n) {
+        if (n == 0)
+            return;
+        final int len = n * width;
+        // Buffer casts keep the calls compiling against the Java 8 signatures
+        final ByteBuffer s = segment(src);
+        ((Buffer) s).position(base(src) + NODE_HEADER_BYTES + srcOffset * width);
+        s.get(scratch, 0, len);
+        final ByteBuffer d = segment(dst);
+        ((Buffer) d).position(base(dst) + NODE_HEADER_BYTES + dstOffset * width);
+        d.put(scratch, 0, len);
+    }
+}
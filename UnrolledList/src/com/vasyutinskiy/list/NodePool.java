@@ -0,0 +1,162 @@
+package com.vasyutinskiy.list;
+
+import java.util.Arrays;
+
+/**
+ * Pool of node slabs, the element arrays backing the nodes of an
+ * {@link UnrolledLinkedList}, that can be shared by any number of lists with
+ * the same node capacity.
+ * <p/>
+ * <p>A list created with a pool takes the array of every new node from it and
+ * hands the array back, cleared, when the node is dropped. Queue-style use
+ * that keeps adding at one end and polling at the other then recycles the
+ * same few arrays instead of allocating a fresh one for every node.
+ * <p/>
+ * <p>Every thread keeps a small cache of free slabs, so taking and returning
+ * one is usually a thread-local stack operation. Caches exchange half of
+ * their slabs at a time with a bounded global free list; slabs returned
+ * while the global list is full are left to the garbage collector.
+ * <p/>
+ * <p>This class is thread-safe. A slab is never shared: a list only returns
+ * one after it stopped using it.
+ */
+public final class NodePool {
+
+    /**
+     * Default number of free slabs kept on the global free list.
+     */
+    public static final int DEFAULT_MAX_POOLED = 4096;
+
+    /**
+     * Default number of free slabs every thread caches.
+     */
+    public static final int DEFAULT_THREAD_CACHE_SIZE = 64;
+
+    private final int nodeCapacity;
+    private final int threadCacheSize;
+
+    /**
+     * Global free list, guarded by {@code this}.
+     */
+    private final Object[][] pooled;
+    private int pooledCount;
+
+    private final ThreadLocal<Cache> cache = new ThreadLocal<Cache>() {
+        @Override
+        protected Cache initialValue() {
+            return new Cache(threadCacheSize);
+        }
+    };
+
+    /**
+     * Constructs a pool of slabs holding {@code nodeCapacity} elements with
+     * the default global and per-thread limits.
+     *
+     * @param nodeCapacity the node capacity of the lists using this pool
+     * @throws IllegalArgumentException if {@code nodeCapacity} is less than 2
+     */
+    public NodePool(int nodeCapacity) {
+        this(nodeCapacity, DEFAULT_MAX_POOLED, DEFAULT_THREAD_CACHE_SIZE);
+    }
+
+    /**
+     * Constructs a pool of slabs holding {@code nodeCapacity} elements.
+     *
+     * @param nodeCapacity    the node capacity of the lists using this pool
+     * @param maxPooled       the number of free slabs the global free list
+     *                        keeps at most
+     * @param threadCacheSize the number of free slabs every thread caches
+     * @throws IllegalArgumentException if {@code nodeCapacity} is less than 2,
+     *                                  {@code maxPooled} is negative or
+     *                                  {@code threadCacheSize} is less than 2
+     */
+    public NodePool(int nodeCapacity, int maxPooled, int threadCacheSize) {
+        if (nodeCapacity < 2)
+            throw new IllegalArgumentException("Illegal node capacity: " + nodeCapacity);
+        if (maxPooled < 0)
+            throw new IllegalArgumentException("Illegal pool size: " + maxPooled);
+        if (threadCacheSize < 2)
+            throw new IllegalArgumentException("Illegal thread cache size: " + threadCacheSize);
+        this.nodeCapacity = nodeCapacity;
+        this.threadCacheSize = threadCacheSize;
+        this.pooled = new Object[maxPooled][];
+    }
+
+    /**
+     * Returns the number of elements a slab of this pool holds.
+     *
+     * @return the node capacity of the lists using this pool
+     */
+    public int getNodeCapacity() {
+        return nodeCapacity;
+    }
+
+    /**
+     * Returns the number of free slabs on the global free list, not counting
+     * the ones cached by threads.
+     *
+     * @return the number of globally pooled slabs
+     */
+    public synchronized int pooledCount() {
+        return pooledCount;
+    }
+
+    /**
+     * Returns an empty slab, a new one if neither the cache of the calling
+     * thread nor the global free list has one.
+     */
+    Object[] acquire() {
+        final Cache c = cache.get();
+        if (c.count == 0 && !refill(c))
+            return new Object[nodeCapacity];
+        final Object[] items = c.slabs[--c.count];
+        c.slabs[c.count] = null;
+        return items;
+    }
+
+    /**
+     * Clears slab items, no longer referenced by its list, and takes it back.
+     */
+    void release(Object[] items) {
+        Arrays.fill(items, null);
+        final Cache c = cache.get();
+        if (c.count == c.slabs.length)
+            spill(c);
+        c.slabs[c.count++] = items;
+    }
+
+    /**
+     * Moves up to half a cache worth of slabs from the global free list to
+     * cache c. Returns false if there were none.
+     */
+    private synchronized boolean refill(Cache c) {
+        final int n = Math.min(pooledCount, c.slabs.length >> 1);
+        pooledCount -= n;
+        System.arraycopy(pooled, pooledCount, c.slabs, 0, n);
+        Arrays.fill(pooled, pooledCount, pooledCount + n, null);
+        c.count = n;
+        return n > 0;
+    }
+
+    /**
+     * Moves the upper half of full cache c to the global free list, dropping
+     * what does not fit.
+     */
+    private synchronized void spill(Cache c) {
+        final int keep = c.slabs.length >> 1;
+        final int n = Math.min(c.count - keep, pooled.length - pooledCount);
+        System.arraycopy(c.slabs, keep, pooled, pooledCount, n);
+        pooledCount += n;
+        Arrays.fill(c.slabs, keep, c.count, null);
+        c.count = keep;
+    }
+
+    private static final class Cache {
+        final Object[][] slabs;
+        int count;
+
+        Cache(int size) {
+            slabs = new Object[size][];
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.vasyutinskiy.list;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width encoding of the elements of a {@link MappedUnrolledList}.
+ * Every element takes exactly {@link #width} bytes of a node region and is
+ * read and written in place, with the absolute get and put methods of the
+ * mapped buffer, so reading an element does not copy its bytes first.
+ *
+ * @param <E> the type of elements encoded
+ */
+public interface RecordCodec<E> {
+
+    /**
+     * Returns the number of bytes every element takes.
+     *
+     * @return the record width, at least 1
+     */
+    int width();
+
+    /**
+     * Writes element e into the {@link #width} bytes of buf starting at
+     * {@code offset}.
+     *
+     * @param buf    the buffer to write to
+     * @param offset the absolute index of the first byte of the record
+     * @param e      the element to write
+     */
+    void write(ByteBuffer buf, int offset, E e);
+
+    /**
+     * Reads the element held by the {@link #width} bytes of buf starting at
+     * {@code offset}.
+     *
+     * @param buf    the buffer to read from
+     * @param offset the absolute index of the first byte of the record
+     * @return the element read
+     */
+    E read(ByteBuffer buf, int offset);
+
+    /**
+     * Integers as 4 bytes.
+     */
+    RecordCodec<Integer> INTEGER = new RecordCodec<Integer>() {
+        public int width() {
+            return 4;
+        }
+
+        public void write(ByteBuffer buf, int offset, Integer e) {
+            buf.putInt(offset, e);
+        }
+
+        public Integer read(ByteBuffer buf, int offset) {
+            return buf.getInt(offset);
+        }
+    };
+
+    /**
+     * Longs as 8 bytes.
+     */
+    RecordCodec<Long> LONG = new RecordCodec<Long>() {
+        public int width() {
+            return 8;
+        }
+
+        public void write(ByteBuffer buf, int offset, Long e) {
+            buf.putLong(offset, e);
+        }
+
+        public Long read(ByteBuffer buf, int offset) {
+            return buf.getLong(offset);
+        }
+    };
+
+    /**
+     * Doubles as 8 bytes.
+     */
+    RecordCodec<Double> DOUBLE = new RecordCodec<Double>() {
+        public int width() {
+            return 8;
+        }
+
+        public void write(ByteBuffer buf, int offset, Double e) {
+            buf.putDouble(offset, e);
+        }
+
+        public Double read(ByteBuffer buf, int offset) {
+            return buf.getDouble(offset);
+        }
+    };
+}
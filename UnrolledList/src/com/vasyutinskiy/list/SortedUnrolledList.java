@@ -0,0 +1,807 @@
+package com.vasyutinskiy.list;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Unrolled list keeping its elements sorted by a comparator: an ordered
+ * multiset with positional rank and select queries.
+ * <p/>
+ * <p>Nodes are split and merged the same way as in {@link UnrolledLinkedList}.
+ * Instead of being chained, they are held in order by a directory array, so
+ * a search binary-searches the last elements of the nodes first and then the
+ * elements of the node it found. A Fenwick tree over the element counts of
+ * the nodes yields the rank of the first element of a node, and the node
+ * holding the element of a given rank, in {@code O(log n)}. An insert or
+ * removal costs the two searches plus shifting the elements of one node;
+ * only a split or merge that adds or drops a node also shifts the directory
+ * and rebuilds the tree, which happens once in at least half a node
+ * capacity of changes.
+ * <p/>
+ * <p>Iteration, {@link #forEach} and {@link #forEachInRange} walk the node
+ * arrays in order, like the leaves of a B+ tree.
+ * <p/>
+ * <p>Elements the comparator finds equal are all kept, in the order they
+ * were added. {@code contains} and {@code remove} also use the comparator
+ * rather than {@code equals}. Null elements are permitted if the comparator
+ * permits them. This class is not thread-safe, and its iterators are
+ * fail-fast.
+ *
+ * @param <E> the type of elements held in this list
+ */
+public class SortedUnrolledList<E> extends AbstractCollection<E> {
+
+    /**
+     * Node capacity of lists created without an explicit one. It is larger
+     * than the one of {@link UnrolledLinkedList}, since nodes are searched
+     * by bisection, and larger nodes make splits and merges, which cost
+     * time linear in the number of nodes, rarer.
+     */
+    public static final int DEFAULT_NODE_CAPACITY = 128;
+
+    private final int nodeCapacity;
+
+    /**
+     * The comparator this list was created with, null for natural ordering.
+     */
+    private final Comparator<? super E> comparator;
+
+    /**
+     * The comparator ordering the elements, never null.
+     */
+    private final Comparator<? super E> cmp;
+
+    /**
+     * Nodes in element order; nodes[0, nodeCount) are in use and none of
+     * them is empty.
+     */
+    private Node<E>[] nodes;
+    private int nodeCount;
+
+    /**
+     * Fenwick tree over the element counts of the nodes, 1-based, with
+     * {@code nodes.length + 1} slots.
+     */
+    private int[] tree;
+
+    private int size;
+    private int modCount;
+
+    /**
+     * Rank of the first element of the node last returned by
+     * {@link #nodeOf(int)}.
+     */
+    private int nodeStart;
+
+    /**
+     * Constructs an empty list ordered by the natural ordering of its
+     * elements, with the default node capacity.
+     */
+    public SortedUnrolledList() {
+        this(DEFAULT_NODE_CAPACITY, null);
+    }
+
+    /**
+     * Constructs an empty list ordered by the specified comparator, with the
+     * default node capacity.
+     *
+     * @param comparator the comparator ordering this list, or null for the
+     *                   natural ordering of the elements
+     */
+    public SortedUnrolledList(Comparator<? super E> comparator) {
+        this(DEFAULT_NODE_CAPACITY, comparator);
+    }
+
+    /**
+     * Constructs an empty list ordered by the specified comparator, whose
+     * nodes hold {@code nodeCapacity} elements.
+     *
+     * @param nodeCapacity the number of elements a single node holds
+     * @param comparator   the comparator ordering this list, or null for the
+     *                     natural ordering of the elements
+     * @throws IllegalArgumentException if {@code nodeCapacity} is less than 2
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SortedUnrolledList(int nodeCapacity, Comparator<? super E> comparator) {
+        if (nodeCapacity < 2)
+            throw new IllegalArgumentException("Illegal node capacity: " + nodeCapacity);
+        this.nodeCapacity = nodeCapacity;
+        this.comparator = comparator;
+        this.cmp = (comparator != null) ? comparator : (Comparator) Comparator.naturalOrder();
+        this.nodes = (Node<E>[]) new Node[8];
+        this.tree = new int[nodes.length + 1];
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified collection,
+     * ordered by the natural ordering of its elements.
+     *
+     * @param c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null
+     * @throws ClassCastException   if the elements are not mutually
+     *                              comparable
+     */
+    public SortedUnrolledList(Collection<? extends E> c) {
+        this();
+        addAll(c);
+    }
+
+    /**
+     * Returns the comparator ordering this list.
+     *
+     * @return the comparator, or null if this list uses the natural ordering
+     * of its elements
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the number of elements a single node of this list holds.
+     *
+     * @return the node capacity of this list
+     */
+    public int getNodeCapacity() {
+        return nodeCapacity;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts the specified element at its position in the order, after the
+     * elements equal to it.
+     *
+     * @param e element to be added
+     * @return {@code true}
+     * @throws ClassCastException   if the element cannot be compared with
+     *                              the elements of this list
+     * @throws NullPointerException if the element is null and the
+     *                              comparator does not permit nulls
+     */
+    @Override
+    public boolean add(E e) {
+        if (nodeCount == 0) {
+            cmp.compare(e, e); // type (and possibly null) check
+            final Node<E> x = new Node<E>(nodeCapacity);
+            x.items[0] = e;
+            x.numElements = 1;
+            insertNode(0, x);
+        } else {
+            int p = findNode(e, true);
+            if (p == nodeCount)
+                p--; // not less than any element
+            Node<E> x = nodes[p];
+            int offset = search(x, e, true);
+            if (x.numElements == nodeCapacity) {
+                if (offset == 0 && p > 0 && nodes[p - 1].numElements < nodeCapacity) {
+                    // e falls between the nodes, the previous one has room
+                    x = nodes[--p];
+                    offset = x.numElements;
+                } else {
+                    final int keep = nodeCapacity >> 1;
+                    moveHalfToNext(p);
+                    if (offset > keep) {
+                        x = nodes[++p];
+                        offset -= keep;
+                    }
+                }
+            }
+            System.arraycopy(x.items, offset, x.items, offset + 1, x.numElements - offset);
+            x.items[offset] = e;
+            x.numElements++;
+            treeAdd(p, 1);
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Adds all of the elements in the specified collection to this list. A
+     * collection larger than this list is sorted and merged with it in one
+     * pass, packing the result into full nodes; a smaller one is added
+     * element by element.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     * @throws ClassCastException   if the elements cannot be compared with
+     *                              the elements of this list
+     */
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public boolean addAll(Collection<? extends E> c) {
+        final Object[] a = c.toArray();
+        if (a.length == 0)
+            return false;
+        if (a.length < size) {
+            for (Object e : a)
+                add((E) e);
+            return true;
+        }
+        Arrays.sort(a, (Comparator) cmp);
+        rebuild((size == 0) ? a : merge(toArray(), a));
+        return true;
+    }
+
+    /**
+     * Removes one element equal to the specified one, by the comparator of
+     * this list, if there is one: the first of them in the order.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the element
+     * @throws ClassCastException   if the element cannot be compared with
+     *                              the elements of this list
+     * @throws NullPointerException if the element is null and the
+     *                              comparator does not permit nulls
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        final E e = (E) o;
+        final int p = findNode(e, false);
+        if (p == nodeCount)
+            return false;
+        final Node<E> x = nodes[p];
+        final int offset = search(x, e, false);
+        if (cmp.compare(x.items[offset], e) != 0)
+            return false;
+        unlink(p, offset);
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if this list contains an element equal to the
+     * specified one by the comparator of this list.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the element
+     * @throws ClassCastException   if the element cannot be compared with
+     *                              the elements of this list
+     * @throws NullPointerException if the element is null and the
+     *                              comparator does not permit nulls
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        final E e = (E) o;
+        final int p = findNode(e, false);
+        if (p == nodeCount)
+            return false;
+        final Node<E> x = nodes[p];
+        return cmp.compare(x.items[search(x, e, false)], e) == 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(nodes, 0, nodeCount, null);
+        Arrays.fill(tree, 0);
+        nodeCount = 0;
+        size = 0;
+        modCount++;
+    }
+
+    // Search Operations
+
+    /**
+     * Returns the number of elements of this list that are less than the
+     * specified element, which is the index it would be inserted at before
+     * any equal elements.
+     *
+     * @param e the element to rank
+     * @return the rank of the element
+     * @throws ClassCastException   if the element cannot be compared with
+     *                              the elements of this list
+     * @throws NullPointerException if the element is null and the
+     *                              comparator does not permit nulls
+     */
+    public int rank(E e) {
+        final int p = findNode(e, false);
+        if (p == nodeCount)
+            return size;
+        return prefix(p) + search(nodes[p], e, false);
+    }
+
+    /**
+     * Returns the element of the specified rank, that is the element at the
+     * specified position in the order of this list.
+     *
+     * @param rank the rank of the element to return
+     * @return the element of that rank
+     * @throws IndexOutOfBoundsException if the rank is negative or not less
+     *                                   than {@code size()}
+     */
+    public E select(int rank) {
+        if (rank < 0 || rank >= size)
+            throw new IndexOutOfBoundsException("Index: " + rank + ", Size: " + size);
+        final int p = nodeOf(rank);
+        return nodes[p].items[rank - nodeStart];
+    }
+
+    /**
+     * Returns the first (lowest) element of this list.
+     *
+     * @return the first element
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E first() {
+        if (nodeCount == 0)
+            throw new NoSuchElementException();
+        return nodes[0].items[0];
+    }
+
+    /**
+     * Returns the last (highest) element of this list.
+     *
+     * @return the last element
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E last() {
+        if (nodeCount == 0)
+            throw new NoSuchElementException();
+        final Node<E> l = nodes[nodeCount - 1];
+        return l.items[l.numElements - 1];
+    }
+
+    /**
+     * Returns the greatest element of this list less than or equal to the
+     * given element, the last one if there are several, or {@code null} if
+     * there is no such element.
+     *
+     * @param e the value to match
+     * @return the greatest element less than or equal to {@code e}, or null
+     * @throws ClassCastException   if the element cannot be compared with
+     *                              the elements of this list
+     * @throws NullPointerException if the element is null and the
+     *                              comparator does not permit nulls
+     */
+    public E floor(E e) {
+        return before(e, true);
+    }
+
+    /**
+     * Returns the greatest element of this list strictly less than the given
+     * element, or {@code null} if there is no such element.
+     *
+     * @param e the value to match
+     * @return the greatest element less than {@code e}, or null
+     * @throws ClassCastException   if the element cannot be compared with
+     *                              the elements of this list
+     * @throws NullPointerException if the element is null and the
+     *                              comparator does not permit nulls
+     */
+    public E lower(E e) {
+        return before(e, false);
+    }
+
+    /**
+     * Returns the least element of this list greater than or equal to the
+     * given element, the first one if there are several, or {@code null} if
+     * there is no such element.
+     *
+     * @param e the value to match
+     * @return the least element greater than or equal to {@code e}, or null
+     * @throws ClassCastException   if the element cannot be compared with
+     *                              the elements of this list
+     * @throws NullPointerException if the element is null and the
+     *                              comparator does not permit nulls
+     */
+    public E ceiling(E e) {
+        return after(e, true);
+    }
+
+    /**
+     * Returns the least element of this list strictly greater than the
+     * given element, or {@code null} if there is no such element.
+     *
+     * @param e the value to match
+     * @return the least element greater than {@code e}, or null
+     * @throws ClassCastException   if the element cannot be compared with
+     *                              the elements of this list
+     * @throws NullPointerException if the element is null and the
+     *                              comparator does not permit nulls
+     */
+    public E higher(E e) {
+        return after(e, false);
+    }
+
+    /**
+     * Returns the last element before the position of e: the last one not
+     * greater than e if inclusive, the last one less than e otherwise.
+     */
+    private E before(E e, boolean inclusive) {
+        final int p = findNode(e, inclusive);
+        if (p < nodeCount) {
+            final Node<E> x = nodes[p];
+            final int i = search(x, e, inclusive);
+            if (i > 0)
+                return x.items[i - 1];
+        }
+        if (p == 0)
+            return null;
+        final Node<E> x = nodes[p - 1];
+        return x.items[x.numElements - 1];
+    }
+
+    /**
+     * Returns the first element after the position of e: the first one not
+     * less than e if inclusive, the first one greater than e otherwise.
+     */
+    private E after(E e, boolean inclusive) {
+        final int p = findNode(e, !inclusive);
+        if (p == nodeCount)
+            return null;
+        final Node<E> x = nodes[p];
+        return x.items[search(x, e, !inclusive)];
+    }
+
+    // Bulk Operations
+
+    /**
+     * Performs the given action for each element of this list, in order,
+     * looping over the node arrays directly.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     */
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        final int expectedModCount = modCount;
+        for (int p = 0; p < nodeCount && modCount == expectedModCount; p++) {
+            final Node<E> x = nodes[p];
+            final E[] items = x.items;
+            for (int i = 0, n = x.numElements; i < n; i++)
+                action.accept(items[i]);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Performs the given action for each element of this list from
+     * {@code from}, inclusive, to {@code to}, exclusive, in order. Both ends
+     * are located by a search, and the elements between them are read
+     * straight from the node arrays without comparing them.
+     *
+     * @param from   low endpoint, inclusive, of the elements to visit
+     * @param to     high endpoint, exclusive, of the elements to visit
+     * @param action the action to be performed for each element
+     * @throws IllegalArgumentException if {@code from} is greater than
+     *                                  {@code to}
+     * @throws NullPointerException     if the specified action is null
+     */
+    public void forEachInRange(E from, E to, Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        if (cmp.compare(from, to) > 0)
+            throw new IllegalArgumentException("from > to");
+        int p = findNode(from, false);
+        if (p == nodeCount)
+            return;
+        int i = search(nodes[p], from, false);
+        final int q = findNode(to, false);
+        final int end = (q == nodeCount) ? 0 : search(nodes[q], to, false);
+        final int expectedModCount = modCount;
+        for (; p <= q && p < nodeCount && modCount == expectedModCount; p++, i = 0) {
+            final Node<E> x = nodes[p];
+            final E[] items = x.items;
+            for (int n = (p == q) ? end : x.numElements; i < n; i++)
+                action.accept(items[i]);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    @Override
+    public Object[] toArray() {
+        final Object[] a = new Object[size];
+        int k = 0;
+        for (int p = 0; p < nodeCount; p++) {
+            final Node<E> x = nodes[p];
+            System.arraycopy(x.items, 0, a, k, x.numElements);
+            k += x.numElements;
+        }
+        return a;
+    }
+
+    /**
+     * Returns an iterator over the elements of this list, in order. The
+     * iterator supports {@code remove}.
+     *
+     * @return an iterator over the elements of this list
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private final class Itr implements Iterator<E> {
+        private int p;              // node holding the next element
+        private int offset;         // offset of the next element in that node
+        private int cursor;         // rank of the next element
+        private int lastRet = -1;   // rank of the element last returned
+        private int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        public E next() {
+            checkForComodification();
+            if (cursor >= size)
+                throw new NoSuchElementException();
+            Node<E> x = nodes[p];
+            if (offset == x.numElements) {
+                x = nodes[++p];
+                offset = 0;
+            }
+            lastRet = cursor++;
+            return x.items[offset++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+            final int q = nodeOf(lastRet);
+            unlink(q, lastRet - nodeStart);
+            cursor = lastRet;
+            lastRet = -1;
+            // the nodes may have been merged, locate the next element again
+            if (cursor < size) {
+                p = nodeOf(cursor);
+                offset = cursor - nodeStart;
+            }
+            expectedModCount = modCount;
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    // Internal Operations
+
+    /**
+     * Returns the index of the first node whose last element is not less
+     * than e, or greater than e if upper; nodeCount if there is none.
+     */
+    private int findNode(E e, boolean upper) {
+        int lo = 0;
+        int hi = nodeCount;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final Node<E> x = nodes[mid];
+            final int c = cmp.compare(x.items[x.numElements - 1], e);
+            if (c < 0 || (upper && c == 0))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the offset of the first element of node x that is not less
+     * than e, or greater than e if upper; the element count if there is
+     * none.
+     */
+    private int search(Node<E> x, E e, boolean upper) {
+        final E[] items = x.items;
+        int lo = 0;
+        int hi = x.numElements;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int c = cmp.compare(items[mid], e);
+            if (c < 0 || (upper && c == 0))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the index of the node holding the element of the given rank,
+     * and sets nodeStart to the rank of the first element of that node.
+     */
+    private int nodeOf(int rank) {
+        int p = 0;
+        int rem = rank;
+        for (int step = Integer.highestOneBit(nodeCount); step != 0; step >>= 1) {
+            final int q = p + step;
+            if (q <= nodeCount && tree[q] <= rem) {
+                p = q;
+                rem -= tree[q];
+            }
+        }
+        nodeStart = rank - rem;
+        return p;
+    }
+
+    /**
+     * Returns the number of elements in nodes[0, p).
+     */
+    private int prefix(int p) {
+        int s = 0;
+        for (int i = p; i > 0; i -= i & -i)
+            s += tree[i];
+        return s;
+    }
+
+    /**
+     * Adds delta to the element count of node p in the tree.
+     */
+    private void treeAdd(int p, int delta) {
+        for (int i = p + 1; i <= nodeCount; i += i & -i)
+            tree[i] += delta;
+    }
+
+    /**
+     * Rebuilds the tree entries of nodes[from, nodeCount) from their element
+     * counts, in time linear in their number. The entries of the nodes in
+     * front of from only cover those nodes and are kept; the few of them
+     * whose parent is rebuilt are added to it first, so inserting or
+     * dropping the last node stays logarithmic.
+     */
+    private void rebuildTree(int from) {
+        final int[] t = tree;
+        final int m = nodeCount;
+        for (int i = from + 1; i <= m; i++)
+            t[i] = nodes[i - 1].numElements;
+        for (int i = from; i > 0; i -= i & -i) {
+            final int j = i + (i & -i);
+            if (j <= m)
+                t[j] += t[i];
+        }
+        for (int i = from + 1; i <= m; i++) {
+            final int j = i + (i & -i);
+            if (j <= m)
+                t[j] += t[i];
+        }
+    }
+
+    /**
+     * Moves the upper half of full node p to the next node, to a new node if
+     * the next one has no room for it. Both nodes have room for one more
+     * element afterwards.
+     */
+    private void moveHalfToNext(int p) {
+        final Node<E> x = nodes[p];
+        final int keep = nodeCapacity >> 1;
+        final int move = x.numElements - keep;
+        final boolean fresh = p + 1 == nodeCount || nodes[p + 1].numElements + move >= nodeCapacity;
+        final Node<E> next = fresh ? new Node<E>(nodeCapacity) : nodes[p + 1];
+        System.arraycopy(next.items, 0, next.items, move, next.numElements);
+        System.arraycopy(x.items, keep, next.items, 0, move);
+        Arrays.fill(x.items, keep, x.numElements, null);
+        next.numElements += move;
+        x.numElements = keep;
+        treeAdd(p, -move);
+        if (fresh)
+            insertNode(p + 1, next);
+        else
+            treeAdd(p + 1, move);
+    }
+
+    /**
+     * Removes the element at offset of node p, then drops the node if it
+     * became empty or merges it with a neighbour if it fell to half of its
+     * capacity. Unlike {@link UnrolledLinkedList}, a merge has to leave a
+     * quarter of a node free, so that inserts and removals around a node
+     * that was just split do not merge and split it over and over.
+     */
+    private E unlink(int p, int offset) {
+        final Node<E> x = nodes[p];
+        final E e = x.items[offset];
+        final int n = --x.numElements;
+        System.arraycopy(x.items, offset + 1, x.items, offset, n - offset);
+        x.items[n] = null;
+        treeAdd(p, -1);
+        size--;
+        modCount++;
+
+        if (n == 0) {
+            removeNode(p);
+        } else if (n <= (nodeCapacity >> 1)) {
+            final int limit = nodeCapacity - (nodeCapacity >> 2);
+            if (p > 0 && nodes[p - 1].numElements + n <= limit)
+                merge(p - 1);
+            else if (p + 1 < nodeCount && n + nodes[p + 1].numElements <= limit)
+                merge(p);
+        }
+        return e;
+    }
+
+    /**
+     * Moves the elements of node p + 1 to the end of node p and drops it.
+     */
+    private void merge(int p) {
+        final Node<E> a = nodes[p];
+        final Node<E> b = nodes[p + 1];
+        System.arraycopy(b.items, 0, a.items, a.numElements, b.numElements);
+        a.numElements += b.numElements;
+        treeAdd(p, b.numElements);
+        removeNode(p + 1);
+    }
+
+    private void insertNode(int p, Node<E> x) {
+        int from = p;
+        if (nodeCount == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodeCount << 1);
+            tree = new int[nodes.length + 1];
+            from = 0;
+        }
+        System.arraycopy(nodes, p, nodes, p + 1, nodeCount - p);
+        nodes[p] = x;
+        nodeCount++;
+        rebuildTree(from);
+    }
+
+    private void removeNode(int p) {
+        System.arraycopy(nodes, p + 1, nodes, p, nodeCount - p - 1);
+        nodes[--nodeCount] = null;
+        rebuildTree(p);
+    }
+
+    /**
+     * Merges the sorted arrays a and b, taking equal elements from a first.
+     */
+    @SuppressWarnings("unchecked")
+    private Object[] merge(Object[] a, Object[] b) {
+        final Object[] m = new Object[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length)
+            m[k++] = (cmp.compare((E) b[j], (E) a[i]) < 0) ? b[j++] : a[i++];
+        System.arraycopy(a, i, m, k, a.length - i);
+        System.arraycopy(b, j, m, k + a.length - i, b.length - j);
+        return m;
+    }
+
+    /**
+     * Replaces the contents of this list by the sorted array a, packed into
+     * full nodes.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void rebuild(Object[] a) {
+        final int n = a.length;
+        final int count = (n + nodeCapacity - 1) / nodeCapacity;
+        nodes = (Node<E>[]) new Node[Math.max(8, Integer.highestOneBit(count) << 1)];
+        tree = new int[nodes.length + 1];
+        for (int p = 0; p < count; p++) {
+            final Node<E> x = new Node<E>(nodeCapacity);
+            final int k = Math.min(nodeCapacity, n - p * nodeCapacity);
+            System.arraycopy(a, p * nodeCapacity, x.items, 0, k);
+            x.numElements = k;
+            nodes[p] = x;
+        }
+        nodeCount = count;
+        rebuildTree(0);
+        size = n;
+        modCount++;
+    }
+
+    private static final class Node<E> {
+        final E[] items;
+        int numElements;
+
+        @SuppressWarnings("unchecked")
+        Node(int capacity) {
+            this.items = (E[]) new Object[capacity];
+        }
+    }
+}
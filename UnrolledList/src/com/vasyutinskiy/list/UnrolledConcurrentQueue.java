@@ -0,0 +1,451 @@
+package com.vasyutinskiy.list;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * Unbounded queue of nodes holding {@code nodeCapacity} elements each, for
+ * handing elements from producer threads to a single consumer thread.
+ * <p/>
+ * <p>Producers claim a slot in the tail node by incrementing its claim
+ * counter and store the element into it. Only the producer that finds the
+ * tail node full links a new one, so a new node is allocated once per
+ * {@code nodeCapacity} elements instead of once per element as in
+ * {@link java.util.concurrent.ConcurrentLinkedQueue}. The consumer walks the
+ * slots of a node in order and steps to the next node when it reaches the
+ * end; {@link #drain} takes everything published in a node in one pass.
+ * <p/>
+ * <p>In multi-producer mode, the default, slots are claimed with an atomic
+ * increment and new nodes are linked with a compare-and-set, so any number of
+ * threads may {@code offer} at the same time. In single-producer mode claims
+ * and links are plain ordered stores, which is cheaper but only correct as
+ * long as at most one thread at a time offers.
+ * <p/>
+ * <p>Producers are lock-free: some {@code offer} always completes, but a
+ * single producer may retry while others keep claiming the slots of the
+ * tail node and linking new ones. In single-producer mode an {@code offer}
+ * completes in a bounded number of steps. The consumer is not lock-free. A
+ * producer stores its element right after claiming the slot, and
+ * {@code poll}, {@code peek} and {@code drain} wait for a claimed slot to be
+ * filled, so a producer descheduled in between stalls the consumer until it
+ * runs again. {@link #relaxedPoll} returns {@code null} instead of waiting.
+ * <p/>
+ * <p>In both modes {@code poll}, {@code peek}, {@code remove}, {@code drain}
+ * and the other methods taking elements out must only be called by one
+ * thread at a time. The same goes for {@code remove(Object)},
+ * {@code removeIf}, {@code removeAll}, {@code retainAll} and the
+ * {@code remove} of iterators: they leave a marker in the slot of the
+ * removed element, which the consumer skips. {@code size} and
+ * {@code iterator} may be called by any thread; they are weakly consistent,
+ * like the ones of {@code ConcurrentLinkedQueue}. Null elements are not
+ * permitted.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+public class UnrolledConcurrentQueue<E> extends AbstractQueue<E> {
+
+    private final int nodeCapacity;
+    private final boolean singleProducer;
+
+    /**
+     * Node holding the next element to take. Only the consumer writes it.
+     */
+    private volatile Chunk<E> head;
+
+    /**
+     * Slot of the next element to take in {@link #head}. Only the consumer
+     * writes it.
+     */
+    private volatile int consumerIndex;
+
+    /**
+     * Number of {@link #REMOVED} markers the consumer has not passed yet.
+     * Only the consumer writes it.
+     */
+    private volatile int removedCount;
+
+    /**
+     * Marker left in the slot of an element removed from the middle of the
+     * queue.
+     */
+    private static final Object REMOVED = new Object();
+
+    /**
+     * Node producers claim slots in. It may lag behind the last linked node
+     * for a moment in multi-producer mode.
+     */
+    private volatile Chunk<E> tail;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<UnrolledConcurrentQueue, Chunk> HEAD =
+            AtomicReferenceFieldUpdater.newUpdater(UnrolledConcurrentQueue.class, Chunk.class, "head");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<UnrolledConcurrentQueue, Chunk> TAIL =
+            AtomicReferenceFieldUpdater.newUpdater(UnrolledConcurrentQueue.class, Chunk.class, "tail");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<UnrolledConcurrentQueue> CONSUMER_INDEX =
+            AtomicIntegerFieldUpdater.newUpdater(UnrolledConcurrentQueue.class, "consumerIndex");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<UnrolledConcurrentQueue> REMOVED_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater(UnrolledConcurrentQueue.class, "removedCount");
+
+    /**
+     * Constructs an empty multi-producer queue with the default node capacity.
+     */
+    public UnrolledConcurrentQueue() {
+        this(UnrolledLinkedList.DEFAULT_NODE_CAPACITY, false);
+    }
+
+    /**
+     * Constructs an empty queue whose nodes hold {@code nodeCapacity}
+     * elements.
+     *
+     * @param nodeCapacity   the number of elements a single node holds
+     * @param singleProducer whether at most one thread at a time offers
+     * @throws IllegalArgumentException if {@code nodeCapacity} is less than 2
+     */
+    public UnrolledConcurrentQueue(int nodeCapacity, boolean singleProducer) {
+        if (nodeCapacity < 2)
+            throw new IllegalArgumentException("Illegal node capacity: " + nodeCapacity);
+        this.nodeCapacity = nodeCapacity;
+        this.singleProducer = singleProducer;
+        head = tail = new Chunk<E>(nodeCapacity);
+    }
+
+    /**
+     * Returns the number of elements a single node of this queue holds.
+     *
+     * @return the node capacity of this queue
+     */
+    public int getNodeCapacity() {
+        return nodeCapacity;
+    }
+
+    /**
+     * Returns {@code true} if this queue only supports one producer at a time.
+     *
+     * @return whether this queue is in single-producer mode
+     */
+    public boolean isSingleProducer() {
+        return singleProducer;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue. As the queue
+     * is unbounded, this method never returns {@code false}.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link java.util.Queue#offer})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        if (singleProducer) {
+            final Chunk<E> t = tail;
+            final int i = t.claimed;
+            if (i < nodeCapacity) {
+                t.items.lazySet(i, e);
+                Chunk.CLAIMED.lazySet(t, i + 1);
+            } else {
+                final Chunk<E> n = new Chunk<E>(nodeCapacity, e);
+                t.next = n;
+                tail = n;
+            }
+            return true;
+        }
+
+        for (; ; ) {
+            final Chunk<E> t = tail;
+            final int i = Chunk.CLAIMED.getAndIncrement(t);
+            if (i < nodeCapacity) {
+                t.items.lazySet(i, e);
+                return true;
+            }
+            // t is full: link a node holding e, unless another producer did
+            Chunk<E> n = t.next;
+            if (n == null) {
+                n = new Chunk<E>(nodeCapacity, e);
+                if (Chunk.NEXT.compareAndSet(t, null, n)) {
+                    TAIL.compareAndSet(this, t, n);
+                    return true;
+                }
+                n = t.next;
+            }
+            TAIL.compareAndSet(this, t, n);
+        }
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns {@code null}
+     * if this queue is empty. Must only be called by the consumer thread.
+     *
+     * @return the head of this queue, or {@code null} if this queue is empty
+     */
+    public E poll() {
+        final E e = first(false);
+        if (e != null)
+            take();
+        return e;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns {@code null}
+     * if this queue is empty or the producer that claimed the head slot has
+     * not stored its element yet. Unlike {@link #poll} it never waits for a
+     * producer. Must only be called by the consumer thread.
+     *
+     * @return the head of this queue, or {@code null} if it is not there yet
+     */
+    public E relaxedPoll() {
+        final E e = first(true);
+        if (e != null)
+            take();
+        return e;
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of this queue, or returns
+     * {@code null} if this queue is empty. Must only be called by the
+     * consumer thread.
+     *
+     * @return the head of this queue, or {@code null} if this queue is empty
+     */
+    public E peek() {
+        return first(false);
+    }
+
+    /**
+     * Moves the consumer to the slot of the head element, stepping to the
+     * next node and over removed elements, and returns the element, or null
+     * if there is none. Unless relaxed, waits for a claimed slot to be
+     * filled.
+     */
+    private E first(boolean relaxed) {
+        for (; ; ) {
+            final Chunk<E> h = head;
+            final int i = consumerIndex;
+            if (i == nodeCapacity) {
+                final Chunk<E> n = h.next;
+                if (n == null)
+                    return null;
+                CONSUMER_INDEX.lazySet(this, 0);
+                HEAD.lazySet(this, n);
+                continue;
+            }
+            final E e = relaxed ? h.items.get(i) : await(h, i);
+            if (e != REMOVED)
+                return e;
+            take();
+            REMOVED_COUNT.lazySet(this, removedCount - 1);
+        }
+    }
+
+    /**
+     * Clears the slot of the head element and moves the consumer past it.
+     */
+    private void take() {
+        final int i = consumerIndex;
+        head.items.lazySet(i, null);
+        CONSUMER_INDEX.lazySet(this, i + 1);
+    }
+
+    /**
+     * Returns the element in slot i of node h, waiting for it if a producer
+     * claimed the slot but did not store the element yet. Returns null if
+     * the slot is not claimed.
+     */
+    private static <E> E await(Chunk<E> h, int i) {
+        E e = h.items.get(i);
+        if (e == null && i < h.claimed) {
+            while ((e = h.items.get(i)) == null)
+                Thread.yield();
+        }
+        return e;
+    }
+
+    /**
+     * Removes every element currently in this queue and passes it to the
+     * given action, in order. The elements of a node are taken in one pass
+     * over its slots. Must only be called by the consumer thread.
+     *
+     * @param action the action to be performed for each element
+     * @return the number of elements taken
+     * @throws NullPointerException if the specified action is null
+     */
+    public int drain(Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        Chunk<E> h = head;
+        int i = consumerIndex;
+        int count = 0;
+        for (; ; ) {
+            if (i == nodeCapacity) {
+                final Chunk<E> n = h.next;
+                if (n == null)
+                    return count;
+                h = n;
+                i = 0;
+                CONSUMER_INDEX.lazySet(this, 0);
+                HEAD.lazySet(this, h);
+            }
+            final int end = Math.min(h.claimed, nodeCapacity);
+            if (i == end)
+                return count;
+            final AtomicReferenceArray<E> items = h.items;
+            for (; i < end; i++) {
+                final E e = await(h, i);
+                items.lazySet(i, null);
+                CONSUMER_INDEX.lazySet(this, i + 1);
+                if (e == REMOVED) {
+                    REMOVED_COUNT.lazySet(this, removedCount - 1);
+                    continue;
+                }
+                count++;
+                action.accept(e);
+            }
+        }
+    }
+
+    /**
+     * Returns an estimate of the number of elements in this queue. Elements
+     * being offered or taken at the same time may or may not be counted.
+     * Takes time proportional to the number of nodes.
+     *
+     * @return the estimated number of elements in this queue
+     */
+    public int size() {
+        final int i = consumerIndex;
+        long n = -i - removedCount;
+        for (Chunk<E> c = head; c != null; c = c.next)
+            n += Math.min(c.claimed, nodeCapacity);
+        return (int) Math.max(0, Math.min(n, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Returns {@code true} if this queue contains no elements.
+     *
+     * @return {@code true} if this queue contains no elements
+     */
+    public boolean isEmpty() {
+        if (removedCount != 0)
+            return size() == 0;
+        Chunk<E> h = head;
+        int i = consumerIndex;
+        if (i == nodeCapacity) {
+            if ((h = h.next) == null)
+                return true;
+            i = 0;
+        }
+        return i >= Math.min(h.claimed, nodeCapacity);
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the elements in this queue,
+     * in order. Its {@code remove} must only be called by the consumer
+     * thread.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private class Itr implements Iterator<E> {
+        private Chunk<E> chunk = head;
+        private int index = consumerIndex;
+        private E nextItem;
+        private Chunk<E> nextChunk;
+        private Chunk<E> lastChunk;
+        private int lastIndex;
+        private E lastItem;
+
+        Itr() {
+            advance();
+        }
+
+        private void advance() {
+            nextItem = null;
+            while (chunk != null) {
+                final int end = Math.min(chunk.claimed, nodeCapacity);
+                while (index < end) {
+                    final E e = chunk.items.get(index++);
+                    if (e != null && e != REMOVED) {
+                        nextItem = e;
+                        nextChunk = chunk;
+                        return;
+                    }
+                }
+                chunk = (end == nodeCapacity) ? chunk.next : null;
+                index = 0;
+            }
+        }
+
+        public boolean hasNext() {
+            return nextItem != null;
+        }
+
+        public E next() {
+            final E e = nextItem;
+            if (e == null)
+                throw new NoSuchElementException();
+            lastChunk = nextChunk;
+            lastIndex = index - 1;
+            lastItem = e;
+            advance();
+            return e;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void remove() {
+            if (lastItem == null)
+                throw new IllegalStateException();
+            // the consumer clears the slots it takes, so a slot still
+            // holding the element is ahead of it
+            final AtomicReferenceArray<E> items = lastChunk.items;
+            if (items.get(lastIndex) == lastItem) {
+                items.lazySet(lastIndex, (E) REMOVED);
+                REMOVED_COUNT.lazySet(UnrolledConcurrentQueue.this, removedCount + 1);
+            }
+            lastItem = null;
+        }
+    }
+
+    private static final class Chunk<E> {
+        final AtomicReferenceArray<E> items;
+
+        /**
+         * Number of slots handed out to producers. It keeps growing past the
+         * capacity while producers find the node full in multi-producer mode.
+         */
+        volatile int claimed;
+
+        volatile Chunk<E> next;
+
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Chunk> CLAIMED =
+                AtomicIntegerFieldUpdater.newUpdater(Chunk.class, "claimed");
+        @SuppressWarnings("rawtypes")
+        static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+                AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+
+        Chunk(int capacity) {
+            items = new AtomicReferenceArray<E>(capacity);
+        }
+
+        /**
+         * Creates a node whose first slot is already claimed and holds e;
+         * it is published by linking it.
+         */
+        Chunk(int capacity, E e) {
+            items = new AtomicReferenceArray<E>(capacity);
+            items.lazySet(0, e);
+            claimed = 1;
+        }
+    }
+}
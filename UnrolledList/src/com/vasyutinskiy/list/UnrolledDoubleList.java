@@ -0,0 +1,667 @@
+package com.vasyutinskiy.list;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Unrolled linked list of primitive {@code double} values.
+ * <p/>
+ * <p>Nodes are split and merged the same way as in {@link UnrolledLinkedList},
+ * but every node keeps its elements in a {@code double[]}: values are not boxed,
+ * an element costs 8 bytes plus its share of the node overhead, and scans read
+ * consecutive memory instead of chasing a reference per element.
+ * <p/>
+ * <p>Like {@link UnrolledLinkedList} this class is not synchronized.
+ */
+public class UnrolledDoubleList {
+
+    int size = 0;
+
+    /**
+     * Pointer to first node.
+     * Invariant: (first == null && last == null) ||
+     * (first.prev == null && first.numElements > 0)
+     */
+    Node first;
+
+    /**
+     * Pointer to last node.
+     * Invariant: (first == null && last == null) ||
+     * (last.next == null && last.numElements > 0)
+     */
+    Node last;
+
+    /**
+     * Node the last positional lookup resolved, or null, and the index of
+     * its first element; the same finger {@link UnrolledLinkedList} keeps.
+     */
+    Node finger;
+    int fingerIndex;
+
+    /**
+     * Number of structural modifications, checked by iterators.
+     */
+    int modCount = 0;
+
+    private final int nodeCapacity;
+
+    /**
+     * Constructs an empty list with the default node capacity.
+     */
+    public UnrolledDoubleList() {
+        this(UnrolledLinkedList.DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty list whose nodes hold {@code nodeCapacity} elements.
+     *
+     * @param nodeCapacity the number of elements a single node holds
+     * @throws IllegalArgumentException if {@code nodeCapacity} is less than 2
+     */
+    public UnrolledDoubleList(int nodeCapacity) {
+        if (nodeCapacity < 2)
+            throw new IllegalArgumentException("Illegal node capacity: " + nodeCapacity);
+        this.nodeCapacity = nodeCapacity;
+    }
+
+    /**
+     * Returns the number of elements a single node of this list holds.
+     *
+     * @return the node capacity of this list
+     */
+    public int getNodeCapacity() {
+        return nodeCapacity;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this list contains no elements.
+     *
+     * @return {@code true} if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true}
+     */
+    public boolean add(double e) {
+        linkLast(e);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the beginning of this list.
+     *
+     * @param e the element to add
+     */
+    public void addFirst(double e) {
+        Node f = first;
+        if (f == null || f.numElements == nodeCapacity) {
+            f = new Node(nodeCapacity);
+            linkNodeAfter(null, f);
+        }
+        f.addToHead(e);
+        if (finger != f && finger != null)
+            fingerIndex++;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this list.
+     * Shifts the element currently at that position (if any) and any
+     * subsequent elements to the right (adds one to their indices).
+     *
+     * @param index   index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *                                   ({@code index < 0 || index > size()})
+     */
+    public void add(int index, double element) {
+        checkPositionIndex(index);
+
+        if (index == size)
+            linkLast(element);
+        else {
+            Node node = node(index);
+            linkBefore(node, index - fingerIndex, element);
+        }
+    }
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *                                   ({@code index < 0 || index >= size()})
+     */
+    public double get(int index) {
+        checkElementIndex(index);
+        Node node = node(index);
+        return node.items[index - fingerIndex];
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with the
+     * specified element.
+     *
+     * @param index   index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *                                   ({@code index < 0 || index >= size()})
+     */
+    public double set(int index, double element) {
+        checkElementIndex(index);
+        Node x = node(index);
+        int offset = index - fingerIndex;
+        double oldVal = x.items[offset];
+        x.items[offset] = element;
+        return oldVal;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.  Shifts any
+     * subsequent elements to the left (subtracts one from their indices).
+     *
+     * @param index the index of the element to be removed
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *                                   ({@code index < 0 || index >= size()})
+     */
+    public double removeAt(int index) {
+        checkElementIndex(index);
+        Node node = node(index);
+        return unlink(node, index - fingerIndex);
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param o element to search for
+     * @return the index of the first occurrence of the specified element in
+     *         this list, or -1 if this list does not contain the element
+     */
+    public int indexOf(double o) {
+        int index = 0;
+        for (Node x = first; x != null; x = x.next) {
+            final double[] items = x.items;
+            for (int i = 0; i < x.numElements; i++) {
+                if (Double.doubleToLongBits(items[i]) == Double.doubleToLongBits(o))
+                    return index + i;
+            }
+            index += x.numElements;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param o element to search for
+     * @return the index of the last occurrence of the specified element in
+     *         this list, or -1 if this list does not contain the element
+     */
+    public int lastIndexOf(double o) {
+        int index = size;
+        for (Node x = last; x != null; x = x.prev) {
+            index -= x.numElements;
+            final double[] items = x.items;
+            for (int i = x.numElements - 1; i >= 0; i--) {
+                if (Double.doubleToLongBits(items[i]) == Double.doubleToLongBits(o))
+                    return index + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(double o) {
+        return indexOf(o) != -1;
+    }
+
+    /**
+     * Removes all of the elements from this list.
+     */
+    public void clear() {
+        for (Node x = first; x != null; ) {
+            Node next = x.next;
+            x.items = null;
+            x.next = null;
+            x.prev = null;
+            x = next;
+        }
+        first = last = finger = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * @return an array containing all of the elements in this list
+     */
+    public double[] toArray() {
+        double[] result = new double[size];
+        int i = 0;
+        for (Node x = first; x != null; x = x.next) {
+            System.arraycopy(x.items, 0, result, i, x.numElements);
+            i += x.numElements;
+        }
+        return result;
+    }
+
+    /**
+     * Writes the elements of this list to out in a raw binary format that
+     * {@link #readFrom} reads back: a small header holding the node capacity
+     * and the size, followed by every element as the 8 big-endian bytes of its raw bits. Each
+     * node goes out with a single {@code write} of a byte array.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        Codecs.writeHeader(out, nodeCapacity, size);
+        final byte[] b = new byte[nodeCapacity << 3];
+        for (Node x = first; x != null; x = x.next) {
+            final int n = x.numElements;
+            for (int i = 0, p = 0; i < n; i++, p += 8)
+                Codecs.putLong(b, p, Double.doubleToRawLongBits(x.items[i]));
+            out.write(b, 0, n << 3);
+        }
+    }
+
+    /**
+     * Reads a list written by {@link #writeTo} from in, with the node
+     * capacity it had. The elements are read straight into fully packed
+     * nodes, a node at a time.
+     *
+     * @param in the input to read from
+     * @return the list read
+     * @throws IOException if reading fails or in does not hold a list
+     *                     written by {@code writeTo}
+     */
+    public static UnrolledDoubleList readFrom(DataInput in) throws IOException {
+        final int nodeCapacity = Codecs.readNodeCapacity(in);
+        final int size = Codecs.readSize(in);
+        final UnrolledDoubleList list = new UnrolledDoubleList(nodeCapacity);
+        final byte[] b = new byte[nodeCapacity << 3];
+        while (list.size < size) {
+            final Node n = new Node(nodeCapacity);
+            final int k = Math.min(size - list.size, nodeCapacity);
+            in.readFully(b, 0, k << 3);
+            for (int i = 0, p = 0; i < k; i++, p += 8)
+                n.items[i] = Double.longBitsToDouble(Codecs.getLong(b, p));
+            n.numElements = k;
+            list.linkNodeAfter(list.last, n);
+            list.size += k;
+        }
+        return list;
+    }
+
+    /**
+     * Performs the given action for each element of this list, in order.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(DoubleConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        final int expectedModCount = modCount;
+        for (Node x = first; x != null; x = x.next) {
+            final double[] items = x.items;
+            for (int i = 0, n = x.numElements; i < n; i++)
+                action.accept(items[i]);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     *
+     * @return an iterator over the elements in this list
+     */
+    public PrimitiveIterator.OfDouble iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Returns a sequential {@code DoubleStream} over the elements in this list.
+     *
+     * @return a sequential stream over the elements in this list
+     */
+    public DoubleStream stream() {
+        return StreamSupport.doubleStream(Spliterators.spliterator(iterator(), size,
+                Spliterator.ORDERED), false);
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (Node x = first; x != null; x = x.next) {
+            for (int i = 0; i < x.numElements; i++) {
+                if (sb.length() > 1)
+                    sb.append(", ");
+                sb.append(x.items[i]);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private class Itr implements PrimitiveIterator.OfDouble {
+        private Node node = first;
+        private int offset;
+        private int nextIndex;
+        private final int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        public double nextDouble() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            if (offset == node.numElements) {
+                node = node.next;
+                offset = 0;
+            }
+            nextIndex++;
+            return node.items[offset++];
+        }
+
+        public void forEachRemaining(DoubleConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            while (nextIndex < size) {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                if (offset == node.numElements) {
+                    node = node.next;
+                    offset = 0;
+                }
+                final double[] items = node.items;
+                final int end = node.numElements;
+                nextIndex += end - offset;
+                for (; offset < end; offset++)
+                    action.accept(items[offset]);
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Tells if the argument is the index of an existing element.
+     */
+    private boolean isElementIndex(int index) {
+        return index >= 0 && index < size;
+    }
+
+    /**
+     * Tells if the argument is the index of a valid position for an
+     * add operation.
+     */
+    private boolean isPositionIndex(int index) {
+        return index >= 0 && index <= size;
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: " + index + ", Size: " + size;
+    }
+
+    private void checkElementIndex(int index) {
+        if (!isElementIndex(index))
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private void checkPositionIndex(int index) {
+        if (!isPositionIndex(index))
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * Returns the (non-null) Node at the specified element index and moves
+     * the finger to it, so that the element is at offset
+     * {@code index - fingerIndex}.
+     */
+    Node node(int index) {
+        // assert isElementIndex(index);
+        Node x = finger;
+        int i = fingerIndex;
+        if (x != null && index >= i && index < i + x.numElements)
+            return x;
+
+        int distance = (x == null) ? size : Math.abs(index - i);
+        final int fromLast = size - 1 - index;
+        if (index <= fromLast && index < distance) {
+            x = first;
+            i = 0;
+        } else if (fromLast < distance) {
+            x = last;
+            i = size - x.numElements;
+        }
+
+        while (index < i) {
+            x = x.prev;
+            i -= x.numElements;
+        }
+        while (index >= i + x.numElements) {
+            i += x.numElements;
+            x = x.next;
+        }
+        finger = x;
+        fingerIndex = i;
+        return x;
+    }
+
+    // Node chain maintenance, mirroring UnrolledLinkedList
+
+    void linkLast(double e) {
+        Node l = last;
+        if (l == null || l.numElements == nodeCapacity) {
+            l = new Node(nodeCapacity);
+            linkNodeAfter(last, l);
+        }
+        l.addToTail(e);
+        size++;
+        modCount++;
+    }
+
+    void linkBefore(Node x, int offset, double e) {
+        if (finger != x)
+            finger = null;
+        if (x.numElements == nodeCapacity) {
+            final int half = nodeCapacity >> 1;
+            if (offset < half) {
+                moveHalfToPrev(x);
+                Node p = x.prev;
+                p.addOnIndex(p.numElements - half + offset, e);
+                if (finger == x)
+                    fingerIndex++;
+            } else {
+                moveHalfToNext(x);
+                if (offset > half)
+                    x.next.addOnIndex(offset - half, e);
+                else
+                    x.addOnIndex(offset, e);
+            }
+        } else {
+            x.addOnIndex(offset, e);
+        }
+        size++;
+        modCount++;
+    }
+
+    double unlink(Node x, int offset) {
+        if (finger != x)
+            finger = null;
+        final double element = x.deleteElementWithIndex(offset);
+        if (x.numElements == 0)
+            unlinkNode(x);
+        else if (x.numElements <= (nodeCapacity >> 1))
+            rearrangeElementsWithAdjacent(x);
+        size--;
+        modCount++;
+        return element;
+    }
+
+    private void linkNodeAfter(Node pred, Node n) {
+        final Node succ = (pred == null) ? first : pred.next;
+        n.prev = pred;
+        n.next = succ;
+        if (pred == null)
+            first = n;
+        else
+            pred.next = n;
+        if (succ == null)
+            last = n;
+        else
+            succ.prev = n;
+    }
+
+    private void unlinkNode(Node x) {
+        // an emptied node starts where its successor does
+        if (finger == x)
+            finger = (x.numElements == 0) ? x.next : null;
+        final Node prev = x.prev;
+        final Node next = x.next;
+        if (prev == null)
+            first = next;
+        else
+            prev.next = next;
+        if (next == null)
+            last = prev;
+        else
+            next.prev = prev;
+        x.items = null;
+        x.prev = null;
+        x.next = null;
+        x.numElements = 0;
+    }
+
+    private void moveHalfToNext(Node x) {
+        final int keep = nodeCapacity >> 1;
+        final int move = x.numElements - keep;
+        Node next = x.next;
+        if (next == null || next.numElements + move >= nodeCapacity) {
+            next = new Node(nodeCapacity);
+            linkNodeAfter(x, next);
+        } else if (finger == next) {
+            fingerIndex -= move;
+        }
+
+        System.arraycopy(next.items, 0, next.items, move, next.numElements);
+        System.arraycopy(x.items, keep, next.items, 0, move);
+        next.numElements += move;
+        x.numElements = keep;
+    }
+
+    private void moveHalfToPrev(Node x) {
+        final int move = nodeCapacity >> 1;
+        final int keep = x.numElements - move;
+        Node prev = x.prev;
+        if (prev == null || prev.numElements + move >= nodeCapacity) {
+            prev = new Node(nodeCapacity);
+            linkNodeAfter(x.prev, prev);
+        }
+        if (finger == x)
+            fingerIndex += move;
+
+        System.arraycopy(x.items, 0, prev.items, prev.numElements, move);
+        System.arraycopy(x.items, move, x.items, 0, keep);
+        prev.numElements += move;
+        x.numElements = keep;
+    }
+
+    private void rearrangeElementsWithAdjacent(Node x) {
+        final Node prev = x.prev;
+        final Node next = x.next;
+        if (prev != null && prev.numElements + x.numElements <= nodeCapacity) {
+            if (finger == x) {
+                finger = prev;
+                fingerIndex -= prev.numElements;
+            }
+            System.arraycopy(x.items, 0, prev.items, prev.numElements, x.numElements);
+            prev.numElements += x.numElements;
+            unlinkNode(x);
+        } else if (next != null && x.numElements + next.numElements <= nodeCapacity) {
+            if (finger == next) {
+                finger = x;
+                fingerIndex -= x.numElements;
+            }
+            System.arraycopy(next.items, 0, x.items, x.numElements, next.numElements);
+            x.numElements += next.numElements;
+            unlinkNode(next);
+        }
+    }
+
+    private static class Node {
+        int numElements = 0;
+        double[] items;
+        Node next;
+        Node prev;
+
+        Node(int capacity) {
+            this.items = new double[capacity];
+        }
+
+        // The add methods expect the caller to have made room in the node.
+
+        void addToHead(double e) {
+            System.arraycopy(items, 0, items, 1, numElements);
+            items[0] = e;
+            numElements++;
+        }
+
+        void addToTail(double e) {
+            items[numElements++] = e;
+        }
+
+        void addOnIndex(int index, double e) {
+            System.arraycopy(items, index, items, index + 1, numElements - index);
+            items[index] = e;
+            numElements++;
+        }
+
+        double deleteElementWithIndex(int i) {
+            double e = items[i];
+            numElements--;
+            System.arraycopy(items, i + 1, items, i, numElements - i);
+            return e;
+        }
+    }
+}
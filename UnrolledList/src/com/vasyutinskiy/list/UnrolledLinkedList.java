@@ -1,38 +1,177 @@
 package com.vasyutinskiy.list;
 
-
-import com.sun.org.apache.xpath.internal.SourceTree;
-
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 public class UnrolledLinkedList<E>
         extends AbstractSequentialList<E>
         implements List<E>, Deque<E>, Cloneable, java.io.Serializable {
 
+    /**
+     * Node capacity of lists created without an explicit one.
+     */
+    public static final int DEFAULT_NODE_CAPACITY = 32;
+
+    /**
+     * Number of nodes from which a positional lookup counts as a long walk
+     * in the metrics of a list, see {@link #setMetricsEnabled(boolean)}.
+     */
+    public static final int LONG_WALK_NODES = 64;
+
     transient int size = 0;
 
     /**
      * Pointer to first node.
      * Invariant: (first == null && last == null) ||
-     * (first.prev == null && first.item != null)
+     * (first.prev == null && first.numElements > 0)
      */
     transient Node<E> first;
 
     /**
      * Pointer to last node.
      * Invariant: (first == null && last == null) ||
-     * (last.next == null && last.item != null)
+     * (last.next == null && last.numElements > 0)
      */
     transient Node<E> last;
 
     /**
-     * Constructs an empty list.
+     * Number of element slots in every node of this list. A node that drops
+     * to half of it is merged with a neighbour when they fit into one node.
+     * Not final only because streams written before it existed leave it 0.
+     *
+     * @serial
+     */
+    private int nodeCapacity;
+
+    /**
+     * Whether positional access goes through a counted index over the nodes.
+     *
+     * @serial
+     */
+    private final boolean indexed;
+
+    /**
+     * Root of the counted B-tree over the node chain; null unless the list
+     * is indexed. Its leaves are the nodes in chain order.
+     */
+    transient Branch<E> root;
+
+    /**
+     * Number of nodes in the chain.
+     */
+    transient int nodeCount;
+
+    /**
+     * Fill factor below which removals compact this list, or 0 if they
+     * never do.
+     *
+     * @serial
+     */
+    private float compactThreshold;
+
+    /**
+     * Counters of splits, merges and node walks, or null unless metrics are
+     * enabled.
+     */
+    private transient ListMetrics metrics;
+
+    /**
+     * Pool the element arrays of new nodes come from and the arrays of
+     * dropped nodes go back to, or null if nodes are simply allocated.
+     */
+    private final transient NodePool pool;
+
+    /**
+     * Finger: the node the last positional lookup resolved, or null.
+     * Lookups near it walk from it instead of from either end, so indexed
+     * loops with small steps cost about as much as iteration. Every
+     * modification keeps it pointing at a live node with the right start
+     * index or clears it. As lookups move it, even read-only positional
+     * access needs external synchronization when shared between threads.
+     */
+    transient Node<E> finger;
+
+    /**
+     * Index of the first element of {@link #finger}.
+     */
+    transient int fingerIndex;
+
+    /**
+     * Constructs an empty list with the default node capacity.
      */
     public UnrolledLinkedList() {
-        first = new Node<E>();
-        last = new Node<E>();
-        first.next = last;
-        last.prev = first;
+        this(DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty list whose nodes hold {@code nodeCapacity} elements.
+     * Small nodes make positional inserts and removals cheaper, large nodes
+     * make traversal, positional lookup and the per-element footprint cheaper.
+     *
+     * @param nodeCapacity the number of elements a single node holds
+     * @throws IllegalArgumentException if {@code nodeCapacity} is less than 2
+     */
+    public UnrolledLinkedList(int nodeCapacity) {
+        this(nodeCapacity, false);
+    }
+
+    /**
+     * Constructs an empty list whose nodes hold {@code nodeCapacity} elements,
+     * optionally in indexed mode. An indexed list keeps its nodes under a
+     * B-tree of element counts, so {@code get}, {@code set}, {@code add(int, E)}
+     * and {@code remove(int)} take O(log n) instead of walking the node chain,
+     * at the price of keeping the counts up to date on every modification.
+     *
+     * @param nodeCapacity the number of elements a single node holds
+     * @param indexed      whether positional access goes through the index
+     * @throws IllegalArgumentException if {@code nodeCapacity} is less than 2
+     */
+    public UnrolledLinkedList(int nodeCapacity, boolean indexed) {
+        this(nodeCapacity, indexed, null);
+    }
+
+    /**
+     * Constructs an empty list that takes the element arrays of its nodes
+     * from the given pool and returns them there when nodes are dropped.
+     * The node capacity of the list is the one of the pool.
+     *
+     * @param pool the pool shared with other lists
+     * @throws NullPointerException if {@code pool} is null
+     */
+    public UnrolledLinkedList(NodePool pool) {
+        this(pool, false);
+    }
+
+    /**
+     * Constructs an empty list that takes the element arrays of its nodes
+     * from the given pool, optionally in indexed mode.
+     *
+     * @param pool    the pool shared with other lists
+     * @param indexed whether positional access goes through the index
+     * @throws NullPointerException if {@code pool} is null
+     * @see #UnrolledLinkedList(int, boolean)
+     */
+    public UnrolledLinkedList(NodePool pool, boolean indexed) {
+        this(pool.getNodeCapacity(), indexed, pool);
+    }
+
+    private UnrolledLinkedList(int nodeCapacity, boolean indexed, NodePool pool) {
+        if (nodeCapacity < 2)
+            throw new IllegalArgumentException("Illegal node capacity: " + nodeCapacity);
+        this.nodeCapacity = nodeCapacity;
+        this.indexed = indexed;
+        this.pool = pool;
+        if (indexed)
+            root = new Branch<E>(true);
     }
 
     /**
@@ -48,40 +187,390 @@ public class UnrolledLinkedList<E>
         addAll(c);
     }
 
+    /**
+     * Returns the number of elements a single node of this list holds.
+     *
+     * @return the node capacity of this list
+     */
+    public int getNodeCapacity() {
+        return nodeCapacity;
+    }
+
+    /**
+     * Returns {@code true} if positional access of this list goes through
+     * the counted node index.
+     *
+     * @return whether this list is in indexed mode
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Returns a new empty node, backed by an array from the pool if there is
+     * one.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<E> newNode() {
+        return (pool == null) ? new Node<E>(nodeCapacity) : new Node<E>((E[]) pool.acquire());
+    }
+
+    /**
+     * Detaches the element array from node x, which is being dropped, and
+     * returns it to the pool if there is one and no snapshot shares it.
+     */
+    private void releaseItems(Node<E> x) {
+        if (pool != null && !x.shared)
+            pool.release(x.items);
+        x.items = null;
+    }
+
     /**
      * Links e as last element.
      */
     void linkLast(E e) {
-        final Node<E> l = last;
-        if (l != null) {
-            l.addToTail(e);
+        Node<E> l = last;
+        if (l == null || l.numElements == nodeCapacity) {
+            l = newNode();
+            linkNodeAfter(last, l);
+        }
+        l.addToTail(e);
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Inserts e at the given offset of non-null node x, splitting x when it
+     * is full. Keeps the finger only if it points at x.
+     */
+    void linkBefore(Node<E> x, int offset, E e) {
+        if (finger != x)
+            finger = null;
+        if (x.numElements == nodeCapacity) {
+            final int half = nodeCapacity >> 1;
+            if (offset < half) {
+                moveHalfToPrev(x);
+                Node<E> p = x.prev;
+                p.addOnIndex(p.numElements - half + offset, e);
+                if (finger == x)
+                    fingerIndex++;
+            } else {
+                moveHalfToNext(x);
+                if (offset > half)
+                    x.next.addOnIndex(offset - half, e);
+                else
+                    x.addOnIndex(offset, e);
+            }
         } else {
-            final Node<E> newNode = new Node<E>(null, e, null);
-            first = newNode;
-            last = newNode;
+            x.addOnIndex(offset, e);
         }
         size++;
         modCount++;
     }
 
     /**
-     * Unlinks non-null first node f.
+     * Unlinks the element at the given offset of non-null node x. Keeps the
+     * finger only if it points at x.
+     */
+    E unlink(Node<E> x, int offset) {
+        if (finger != x)
+            finger = null;
+        final E element = x.deleteElementWithIndex(offset);
+        afterDelete(x);
+        size--;
+        modCount++;
+        return element;
+    }
+
+    /**
+     * Unlinks the first element of non-null first node f.
      */
     private E unlinkFirst(Node<E> f) {
-        E e = f.deleteFirst();
+        final E element = f.deleteFirst();
+        if (finger != f && finger != null)
+            fingerIndex--;
+        afterDelete(f);
         size--;
         modCount++;
-        return e;
+        compactIfSparse();
+        return element;
     }
 
     /**
-     * Unlinks non-null last node l.
+     * Unlinks the last element of non-null last node l.
      */
     private E unlinkLast(Node<E> l) {
-        E e = l.deleteLast();
+        final E element = l.deleteLast();
+        afterDelete(l);
         size--;
         modCount++;
-        return e;
+        compactIfSparse();
+        return element;
+    }
+
+    /**
+     * Drops node x if it became empty or merges it with a neighbour if it
+     * dropped to half of its capacity.
+     */
+    private void afterDelete(Node<E> x) {
+        if (x.numElements == 0)
+            unlinkNode(x);
+        else if (x.numElements <= (nodeCapacity >> 1))
+            rearrangeElementsWithAdjacent(x);
+    }
+
+    /**
+     * Links node n right after node pred, or as the first node if pred
+     * is null.
+     */
+    private void linkNodeAfter(Node<E> pred, Node<E> n) {
+        final Node<E> succ = (pred == null) ? first : pred.next;
+        n.prev = pred;
+        n.next = succ;
+        if (pred == null)
+            first = n;
+        else
+            pred.next = n;
+        if (succ == null)
+            last = n;
+        else
+            succ.prev = n;
+        nodeCount++;
+        if (root != null)
+            indexNode(n);
+    }
+
+    /**
+     * Unlinks node x from the node chain and clears it.
+     */
+    private void unlinkNode(Node<E> x) {
+        // an emptied node starts where its successor does
+        if (finger == x)
+            finger = (x.numElements == 0) ? x.next : null;
+        if (root != null) {
+            x.resize(-x.numElements);
+            unindexNode(x);
+        }
+        final Node<E> prev = x.prev;
+        final Node<E> next = x.next;
+        if (prev == null)
+            first = next;
+        else
+            prev.next = next;
+        nodeCount--;
+        if (next == null)
+            last = prev;
+        else
+            next.prev = prev;
+        releaseItems(x);
+        x.prev = null;
+        x.next = null;
+        x.numElements = 0;
+    }
+
+    /**
+     * Moves the upper half of full node x to the next node, to a new node
+     * if the next one has no room for it. x keeps {@code nodeCapacity / 2}
+     * elements and both nodes have room for one more element afterwards.
+     */
+    private void moveHalfToNext(Node<E> x) {
+        final int keep = nodeCapacity >> 1;
+        final int move = x.numElements - keep;
+        Node<E> next = x.next;
+        final boolean fresh = next == null || next.numElements + move >= nodeCapacity;
+        if (fresh) {
+            next = newNode();
+            linkNodeAfter(x, next);
+        } else if (finger == next) {
+            fingerIndex -= move;
+        }
+
+        final E[] nextItems = next.writable();
+        int h = next.head;
+        if (h < move) {
+            // make room in front of the elements of next
+            System.arraycopy(nextItems, h, nextItems, move, next.numElements);
+            h = move;
+        }
+        next.head = h - move;
+        System.arraycopy(x.items, x.head + keep, nextItems, h - move, move);
+        Arrays.fill(x.writable(), x.head + keep, x.head + x.numElements, null);
+        next.resize(move);
+        x.resize(-move);
+        if (metrics != null)
+            metrics.split(nodeCapacity, size, false, fresh);
+    }
+
+    /**
+     * Moves the lower {@code nodeCapacity / 2} elements of full node x to the
+     * end of the previous node, to a new node if the previous one has no
+     * room for them. Both nodes have room for one more element afterwards.
+     */
+    private void moveHalfToPrev(Node<E> x) {
+        final int move = nodeCapacity >> 1;
+        Node<E> prev = x.prev;
+        final boolean fresh = prev == null || prev.numElements + move >= nodeCapacity;
+        if (fresh) {
+            prev = newNode();
+            linkNodeAfter(x.prev, prev);
+        }
+        if (finger == x)
+            fingerIndex += move;
+
+        final E[] prevItems = prev.openTail(move);
+        System.arraycopy(x.items, x.head, prevItems, prev.head + prev.numElements, move);
+        Arrays.fill(x.writable(), x.head, x.head + move, null);
+        x.head += move;
+        prev.resize(move);
+        x.resize(-move);
+        if (metrics != null)
+            metrics.split(nodeCapacity, size, true, fresh);
+    }
+
+    /**
+     * Merges node x into its previous node, or its next node into x,
+     * whichever pair fits into a single node.
+     */
+    private void rearrangeElementsWithAdjacent(Node<E> x) {
+        final Node<E> prev = x.prev;
+        final Node<E> next = x.next;
+        if (prev != null && prev.numElements + x.numElements <= nodeCapacity) {
+            if (finger == x) {
+                finger = prev;
+                fingerIndex -= prev.numElements;
+            }
+            final E[] prevItems = prev.openTail(x.numElements);
+            System.arraycopy(x.items, x.head, prevItems, prev.head + prev.numElements, x.numElements);
+            prev.resize(x.numElements);
+            if (metrics != null)
+                metrics.merge(nodeCapacity, size, x.numElements);
+            unlinkNode(x);
+        } else if (next != null && x.numElements + next.numElements <= nodeCapacity) {
+            if (finger == next) {
+                finger = x;
+                fingerIndex -= x.numElements;
+            }
+            final E[] items = x.openTail(next.numElements);
+            System.arraycopy(next.items, next.head, items, x.head + x.numElements, next.numElements);
+            x.resize(next.numElements);
+            if (metrics != null)
+                metrics.merge(nodeCapacity, size, next.numElements);
+            unlinkNode(next);
+        }
+    }
+
+    // Counted index operations, only used when root != null
+
+    /**
+     * Returns the node holding the element at the given index by descending
+     * the counted index, and moves the finger to it.
+     */
+    private Node<E> indexedNode(int index) {
+        final int target = index;
+        Branch<E> b = root;
+        for (; ; ) {
+            for (int i = 0; ; i++) {
+                final Counted<E> c = b.children[i];
+                final int count = c.count();
+                if (index < count) {
+                    if (b.leaves) {
+                        Node<E> x = (Node<E>) c;
+                        finger = x;
+                        fingerIndex = target - index;
+                        return x;
+                    }
+                    b = (Branch<E>) c;
+                    break;
+                }
+                index -= count;
+            }
+        }
+    }
+
+    /**
+     * Puts freshly linked node n into the index, next to its chain neighbours.
+     */
+    private void indexNode(Node<E> n) {
+        final Branch<E> b;
+        final int slot;
+        if (n.prev != null) {
+            b = n.prev.parent;
+            slot = b.slotOf(n.prev) + 1;
+        } else if (n.next != null) {
+            b = n.next.parent;
+            slot = b.slotOf(n.next);
+        } else {
+            b = root;
+            slot = 0;
+        }
+        b.insert(slot, n);
+        for (Branch<E> a = b; a != null; a = a.parent)
+            a.count += n.numElements;
+        if (b.childCount > Branch.FANOUT)
+            splitBranch(b);
+    }
+
+    /**
+     * Splits overflowing branch b in two, growing the tree at the root.
+     */
+    private void splitBranch(Branch<E> b) {
+        final Branch<E> right = b.splitOff();
+        Branch<E> parent = b.parent;
+        if (parent == null) {
+            parent = new Branch<E>(false);
+            parent.insert(0, b);
+            parent.count = b.count + right.count;
+            root = parent;
+        }
+        parent.insert(parent.slotOf(b) + 1, right);
+        if (parent.childCount > Branch.FANOUT)
+            splitBranch(parent);
+    }
+
+    /**
+     * Takes node n, already emptied, out of the index. Branches left without
+     * children are dropped and a root with a single branch child is collapsed.
+     */
+    private void unindexNode(Node<E> n) {
+        Branch<E> b = n.parent;
+        b.remove(b.slotOf(n));
+        while (b.childCount == 0 && b != root) {
+            final Branch<E> parent = b.parent;
+            parent.remove(parent.slotOf(b));
+            b = parent;
+        }
+        while (!root.leaves && root.childCount == 1) {
+            root = (Branch<E>) root.children[0];
+            root.parent = null;
+        }
+        if (root.childCount == 0)
+            root = new Branch<E>(true);
+    }
+
+    /**
+     * Rebuilds the index bottom-up from the node chain, packing every branch.
+     */
+    private void rebuildIndex() {
+        List<Counted<E>> level = new ArrayList<Counted<E>>();
+        for (Node<E> x = first; x != null; x = x.next)
+            level.add(x);
+        boolean leaves = true;
+        do {
+            List<Counted<E>> parents = new ArrayList<Counted<E>>();
+            Branch<E> b = null;
+            for (Counted<E> c : level) {
+                if (b == null || b.childCount == Branch.FANOUT) {
+                    b = new Branch<E>(leaves);
+                    parents.add(b);
+                }
+                b.insert(b.childCount, c);
+                b.count += c.count();
+            }
+            level = parents;
+            leaves = false;
+        } while (level.size() > 1);
+        root = level.isEmpty() ? new Branch<E>(true) : (Branch<E>) level.get(0);
+        root.parent = null;
     }
 
     /**
@@ -94,7 +583,7 @@ public class UnrolledLinkedList<E>
         final Node<E> f = first;
         if (f == null)
             throw new NoSuchElementException();
-        return f.items[0];
+        return f.items[f.head];
     }
 
     /**
@@ -107,7 +596,7 @@ public class UnrolledLinkedList<E>
         final Node<E> l = last;
         if (l == null)
             throw new NoSuchElementException();
-        return l.items[l.numElements - 1];
+        return l.items[l.head + l.numElements - 1];
     }
 
     public E removeFirst() {
@@ -125,14 +614,14 @@ public class UnrolledLinkedList<E>
     }
 
     public void addFirst(E e) {
-        final Node<E> f = first;
-        if (f != null) {
-            f.addToHead(e);
-        } else {
-            final Node<E> newNode = new Node<E>(null, e, null);
-            first = newNode;
-            last = newNode;
+        Node<E> f = first;
+        if (f == null || f.numElements == nodeCapacity) {
+            f = newNode();
+            linkNodeAfter(null, f);
         }
+        f.addToHead(e);
+        if (finger != f && finger != null)
+            fingerIndex++;
         size++;
         modCount++;
     }
@@ -193,9 +682,10 @@ public class UnrolledLinkedList<E>
         if (o == null) {
             for (Node<E> x = first; x != null; x = x.next) {
                 for (int i = 0; i < x.numElements; i++) {
-                    E item = x.items[i];
+                    E item = x.items[x.head + i];
                     if (item == null) {
-                        x.deleteElementWithIndex(i);
+                        unlink(x, i);
+                        compactIfSparse();
                         return true;
                     }
                 }
@@ -203,9 +693,10 @@ public class UnrolledLinkedList<E>
         } else {
             for (Node<E> x = first; x != null; x = x.next) {
                 for (int i = 0; i < x.numElements; i++) {
-                    E item = x.items[i];
+                    E item = x.items[x.head + i];
                     if (o.equals(item)) {
-                        x.deleteElementWithIndex(i);
+                        unlink(x, i);
+                        compactIfSparse();
                         return true;
                     }
                 }
@@ -245,29 +736,144 @@ public class UnrolledLinkedList<E>
      * @throws IndexOutOfBoundsException {@inheritDoc}
      * @throws NullPointerException      if the specified collection is null
      */
-    public boolean addAll(int index, Collection<? extends E> c) { //ToDo change for nel linked list for array creation
+    public boolean addAll(int index, Collection<? extends E> c) {
         checkPositionIndex(index);
 
         Object[] a = c.toArray();
         int numNew = a.length;
         if (numNew == 0)
             return false;
-        Node<E> ins;
+
+        linkAll(index, a, 0, numNew);
+        return true;
+    }
+
+    /**
+     * Appends {@code len} elements of the specified array, starting at
+     * {@code off}, to the end of this list. The elements are copied
+     * straight from {@code src}: the last node is topped up and the rest
+     * goes into fully packed new nodes, without an intermediate copy of
+     * the slice.
+     *
+     * @param src array holding the elements to be added
+     * @param off index of the first element to add in {@code src}
+     * @param len number of elements to add
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+     *                                   negative, or {@code off + len} is
+     *                                   greater than {@code src.length}
+     * @throws NullPointerException      if the specified array is null
+     */
+    public boolean addAll(E[] src, int off, int len) {
+        checkSlice(src, off, len);
+        if (len == 0)
+            return false;
+        linkAll(size, src, off, len);
+        return true;
+    }
+
+    /**
+     * Inserts {@code len} elements of the specified array, starting at
+     * {@code off}, at the front of this list, in the order they have in
+     * the array. Like {@link #addAll(Object[], int, int)}, the elements go
+     * straight from {@code src} into free slots in front of the first node
+     * or into fully packed new nodes.
+     *
+     * @param src array holding the elements to be added
+     * @param off index of the first element to add in {@code src}
+     * @param len number of elements to add
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+     *                                   negative, or {@code off + len} is
+     *                                   greater than {@code src.length}
+     * @throws NullPointerException      if the specified array is null
+     */
+    public boolean addAllFirst(E[] src, int off, int len) {
+        checkSlice(src, off, len);
+        if (len == 0)
+            return false;
+        linkAll(0, src, off, len);
+        return true;
+    }
+
+    private static void checkSlice(Object[] src, int off, int len) {
+        if (off < 0 || len < 0 || off > src.length - len)
+            throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", length: " + src.length);
+    }
+
+    /**
+     * Inserts len elements of a, starting at off, at the given position.
+     * If they don't fit into the node at that position, the node is split
+     * once, the node before the gap is topped up and the rest goes into a
+     * run of fully packed new nodes linked in between.
+     */
+    private void linkAll(int index, Object[] a, int off, int len) {
+        final int numNew = len;
+        Node<E> pred, succ;
         if (index == size) {
-            ins = last;
+            pred = last;
+            succ = null;
         } else {
-            ins = node(index);
+            final Node<E> x = node(index);
+            final int offset = index - fingerIndex;
+            final int n = x.numElements;
+            if (n + len <= nodeCapacity) {
+                if (offset == 0 && x.head >= len) {
+                    x.head -= len;
+                    System.arraycopy(a, off, x.writable(), x.head, len);
+                } else {
+                    final E[] items = x.aligned();
+                    System.arraycopy(items, offset, items, offset + len, n - offset);
+                    System.arraycopy(a, off, items, offset, len);
+                }
+                x.resize(len);
+                size += numNew;
+                modCount++;
+                return;
+            }
+            if (offset == 0) {
+                pred = x.prev;
+                succ = x;
+            } else {
+                // cut the tail of x off into a node of its own
+                succ = newNode();
+                linkNodeAfter(x, succ);
+                System.arraycopy(x.items, x.head + offset, succ.items, 0, n - offset);
+                Arrays.fill(x.writable(), x.head + offset, x.head + n, null);
+                x.resize(offset - n);
+                succ.resize(n - offset);
+                pred = x;
+            }
         }
-
-        for (Object o : a) {
-            @SuppressWarnings("unchecked") E e = (E) o;
-            ins.addOnIndex(ins.elementOffset, e);
-            ins = node(index++);
+        finger = null;
+
+        if (pred != null && pred.numElements < nodeCapacity) {
+            final int room = Math.min(nodeCapacity - pred.numElements, len);
+            final E[] items = pred.openTail(room);
+            System.arraycopy(a, off, items, pred.head + pred.numElements, room);
+            pred.resize(room);
+            off += room;
+            len -= room;
+        }
+        while (len > 0) {
+            final Node<E> n = newNode();
+            final int chunk = Math.min(nodeCapacity, len);
+            System.arraycopy(a, off, n.items, 0, chunk);
+            linkNodeAfter(pred, n);
+            n.resize(chunk);
+            pred = n;
+            off += chunk;
+            len -= chunk;
         }
 
+        // only the two nodes around the end of the run can be underfull
+        final int half = nodeCapacity >> 1;
+        if (succ != null && succ.numElements <= half)
+            rearrangeElementsWithAdjacent(succ);
+        if (pred.items != null && pred.numElements <= half)
+            rearrangeElementsWithAdjacent(pred);
         size += numNew;
         modCount++;
-        return true;
     }
 
     /**
@@ -281,13 +887,16 @@ public class UnrolledLinkedList<E>
         // - is sure to free memory even if there is a reachable Iterator
         for (Node<E> x = first; x != null; ) {
             Node<E> next = x.next;
-            x.items = null;
+            releaseItems(x);
             x.next = null;
             x.prev = null;
             x = next;
         }
-        first = last = null;
+        first = last = finger = null;
+        if (root != null)
+            root = new Branch<E>(true);
         size = 0;
+        nodeCount = 0;
         modCount++;
     }
 
@@ -304,7 +913,7 @@ public class UnrolledLinkedList<E>
     public E get(int index) {
         checkElementIndex(index);
         Node<E> node = node(index);
-        return node.items[node.elementOffset];
+        return node.items[node.head + index - fingerIndex];
     }
 
     /**
@@ -319,8 +928,9 @@ public class UnrolledLinkedList<E>
     public E set(int index, E element) {
         checkElementIndex(index);
         Node<E> x = node(index);
-        E oldVal = x.items[x.elementOffset];
-        x.items[x.elementOffset] = element;
+        int offset = x.head + index - fingerIndex;
+        E oldVal = x.items[offset];
+        x.writable()[offset] = element;
         return oldVal;
     }
 
@@ -340,7 +950,7 @@ public class UnrolledLinkedList<E>
             linkLast(element);
         else {
             Node<E> node = node(index);
-            node.addOnIndex(node.elementOffset, element);
+            linkBefore(node, index - fingerIndex, element);
         }
     }
 
@@ -356,7 +966,9 @@ public class UnrolledLinkedList<E>
     public E remove(int index) {
         checkElementIndex(index);
         Node<E> node = node(index);
-        return node.deleteElementWithIndex(node.elementOffset);
+        final E element = unlink(node, index - fingerIndex);
+        compactIfSparse();
+        return element;
     }
 
     /**
@@ -394,31 +1006,59 @@ public class UnrolledLinkedList<E>
     }
 
     /**
-     * Returns the (non-null) Node at the specified element index.
+     * Distance, in nodes' worth of elements, up to which an indexed list
+     * walks the chain instead of descending the index.
+     */
+    private static final int INDEXED_WALK_LIMIT = 4;
+
+    /**
+     * Number of nodes a list needs to have before removals compact it.
+     */
+    private static final int AUTO_COMPACT_MIN_NODES = 8;
+
+    /**
+     * Returns the (non-null) Node at the specified element index and moves
+     * the finger to it, so that the element is at offset
+     * {@code index - fingerIndex}. The walk starts from whichever of the
+     * first node, the last node and the finger is closest.
      */
     Node<E> node(int index) {
         // assert isElementIndex(index);
-        if (index < (size >> 1)) {
-            Node<E> x = first;
-            int i = 0;
-            while (i < index) {
-                i += x.numElements;
-                x = x.next;
-            }
-            x.elementOffset = i - index;
-            return x;
-        } else {
-            Node<E> x = last;
-            int i = size - x.numElements;
-            while (i > index) {
-                x = x.prev;
-                i -= x.numElements;
-            }
-            x.elementOffset = index - i;
+        Node<E> x = finger;
+        int i = fingerIndex;
+        if (x != null && index >= i && index < i + x.numElements)
             return x;
 
+        int distance = (x == null) ? size : Math.abs(index - i);
+        final int fromLast = size - 1 - index;
+        if (index <= fromLast && index < distance) {
+            x = first;
+            i = 0;
+            distance = index;
+        } else if (fromLast < distance) {
+            x = last;
+            i = size - x.numElements;
+            distance = fromLast;
+        }
+        if (root != null && distance > INDEXED_WALK_LIMIT * nodeCapacity)
+            return indexedNode(index);
+
+        int walked = 0;
+        while (index < i) {
+            x = x.prev;
+            i -= x.numElements;
+            walked++;
+        }
+        while (index >= i + x.numElements) {
+            i += x.numElements;
+            x = x.next;
+            walked++;
         }
-//        return first;
+        finger = x;
+        fingerIndex = i;
+        if (metrics != null)
+            metrics.walk(nodeCapacity, size, index, walked);
+        return x;
     }
 
 
@@ -440,7 +1080,7 @@ public class UnrolledLinkedList<E>
         if (o == null) {
             for (Node<E> x = first; x != null; x = x.next) {
                 for (int i = 0; i < x.numElements; i++) {
-                    if (x.items[i] == null)
+                    if (x.items[x.head + i] == null)
                         return index;
                     index++;
                 }
@@ -448,7 +1088,7 @@ public class UnrolledLinkedList<E>
         } else {
             for (Node<E> x = first; x != null; x = x.next) {
                 for (int i = 0; i < x.numElements; i++) {
-                    if (o.equals(x.items[i]))
+                    if (o.equals(x.items[x.head + i]))
                         return index;
                     index++;
                 }
@@ -474,7 +1114,7 @@ public class UnrolledLinkedList<E>
             for (Node<E> x = last; x != null; x = x.prev) {
                 for (int i = x.numElements - 1; i >= 0; i--) {
                     index--;
-                    if (x.items[i] == null)
+                    if (x.items[x.head + i] == null)
                         return index;
                 }
             }
@@ -482,7 +1122,7 @@ public class UnrolledLinkedList<E>
             for (Node<E> x = last; x != null; x = x.prev) {
                 for (int i = x.numElements - 1; i >= 0; i--) {
                     index--;
-                    if (o.equals(x.items[i]))
+                    if (o.equals(x.items[x.head + i]))
                         return index;
                 }
             }
@@ -490,61 +1130,1048 @@ public class UnrolledLinkedList<E>
         return -1;
     }
 
-    // Queue operations.
+    // Bulk Operations
 
     /**
-     * Retrieves, but does not remove, the head (first element) of this list.
+     * Performs the given action for each element of this list, in order,
+     * looping over the node arrays directly.
      *
-     * @return the head of this list, or {@code null} if this list is empty
-     * @since 1.5
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
      */
-    public E peek() {
-        final Node<E> f = first;
-        return (f == null) ? null : f.items[0];
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        final int expectedModCount = modCount;
+        for (Node<E> x = first; x != null && modCount == expectedModCount; x = x.next) {
+            final E[] items = x.items;
+            for (int i = x.head, end = i + x.numElements; i < end; i++)
+                action.accept(items[i]);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
     }
 
     /**
-     * Retrieves, but does not remove, the head (first element) of this list.
+     * Hands the node arrays of this list to the given action, in order, one
+     * call per node with the range of the array the node's elements occupy.
+     * Nothing is copied, so the action can run a plain array loop over each
+     * chunk; the arrays are a read-only view, see {@link ChunkConsumer}.
      *
-     * @return the head of this list
-     * @throws NoSuchElementException if this list is empty
-     * @since 1.5
+     * @param action the action to be performed for each chunk
+     * @throws NullPointerException if the specified action is null
      */
-    public E element() {
-        return getFirst();
+    public void forEachChunk(ChunkConsumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        final int expectedModCount = modCount;
+        for (Node<E> x = first; x != null && modCount == expectedModCount; x = x.next)
+            action.accept(x.items, x.head, x.head + x.numElements);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
     }
 
     /**
-     * Retrieves and removes the head (first element) of this list.
+     * Replaces each element of this list with the result of applying the
+     * operator to that element, writing straight into the node arrays.
      *
-     * @return the head of this list, or {@code null} if this list is empty
-     * @since 1.5
+     * @param operator the operator to apply to each element
+     * @throws NullPointerException if the specified operator is null
      */
-    public E poll() {
-        final Node<E> f = first;
-        return (f == null) ? null : unlinkFirst(f);
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        if (operator == null)
+            throw new NullPointerException();
+        final int expectedModCount = modCount;
+        for (Node<E> x = first; x != null && modCount == expectedModCount; x = x.next) {
+            final E[] items = x.writable();
+            for (int i = x.head, end = i + x.numElements; i < end; i++)
+                items[i] = operator.apply(items[i]);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
     }
 
     /**
-     * Retrieves and removes the head (first element) of this list.
+     * Removes all of the elements of this list that satisfy the given
+     * predicate. The predicate is evaluated for every element first, so an
+     * exception thrown by it leaves the list unmodified. Then every node is
+     * compacted in place and nodes left empty or half empty are dropped or
+     * merged into their predecessor, all in a single pass over the chain.
      *
-     * @return the head of this list
-     * @throws NoSuchElementException if this list is empty
-     * @since 1.5
+     * @param filter a predicate which returns {@code true} for elements to be
+     *               removed
+     * @return {@code true} if any elements were removed
+     * @throws NullPointerException if the specified filter is null
      */
-    public E remove() {
-        return removeFirst();
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        if (filter == null)
+            throw new NullPointerException();
+        final int expectedModCount = modCount;
+        final BitSet removeSet = new BitSet(size);
+        int removeCount = 0;
+        int index = 0;
+        for (Node<E> x = first; x != null && modCount == expectedModCount; x = x.next) {
+            final E[] items = x.items;
+            for (int i = x.head, end = i + x.numElements; i < end; i++, index++) {
+                if (filter.test(items[i])) {
+                    removeSet.set(index);
+                    removeCount++;
+                }
+            }
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        if (removeCount == 0)
+            return false;
+
+        finger = null;
+        final int half = nodeCapacity >> 1;
+        index = 0;
+        for (Node<E> x = first; x != null; ) {
+            final Node<E> next = x.next;
+            final int n = x.numElements;
+            int kept = n;
+            final int hit = removeSet.nextSetBit(index);
+            if (hit >= 0 && hit < index + n) {
+                final E[] items = x.aligned();
+                kept = 0;
+                for (int i = 0; i < n; i++) {
+                    if (!removeSet.get(index + i))
+                        items[kept++] = items[i];
+                }
+                Arrays.fill(items, kept, n, null);
+                x.resize(kept - n);
+            }
+            index += n;
+
+            final Node<E> prev = x.prev;
+            if (kept == 0) {
+                unlinkNode(x);
+            } else if (kept <= half && prev != null && prev.numElements + kept <= nodeCapacity) {
+                final E[] prevItems = prev.openTail(kept);
+                System.arraycopy(x.items, x.head, prevItems, prev.head + prev.numElements, kept);
+                prev.resize(kept);
+                if (metrics != null)
+                    metrics.merge(nodeCapacity, size, kept);
+                unlinkNode(x);
+            }
+            x = next;
+        }
+        size -= removeCount;
+        modCount++;
+        compactIfSparse();
+        return true;
     }
 
     /**
-     * Adds the specified element as the tail (last element) of this list.
+     * Sorts this list according to the order induced by the specified
+     * comparator, or the natural order if it is null. The sort is stable.
+     * <p/>
+     * <p>Every node is sorted in place first. Runs of consecutive nodes that
+     * are already in order across their boundaries are then merged, all at
+     * once, into freshly packed nodes, which replace the old ones when the
+     * merge is done. A list that is sorted after the first step is left as
+     * it is, and if the comparator throws, this list holds the same
+     * elements as before, possibly reordered within nodes.
      *
-     * @param e the element to add
-     * @return {@code true} (as specified by {@link Queue#offer})
-     * @since 1.5
+     * @param c the comparator used to compare list elements, or null for
+     *          the natural order
+     * @throws ClassCastException              if the list contains elements
+     *                                         that are not mutually comparable
+     *                                         using the specified comparator
+     * @throws ConcurrentModificationException if the comparator modified
+     *                                         this list
      */
-    public boolean offer(E e) {
-        return add(e);
+    @Override
+    public void sort(Comparator<? super E> c) {
+        sort(c, false);
+    }
+
+    /**
+     * Sorts this list like {@link #sort(Comparator)}, in parallel on the
+     * common {@link ForkJoinPool}. The node chain is split in halves until
+     * ranges of {@value #PARALLEL_SORT_NODES} nodes are left, which are
+     * sorted the same way as by {@code sort}, and the sorted halves are
+     * merged back as a tree, each merge packing its output into fresh
+     * nodes. The last merge walks the whole list on one thread, which bounds
+     * the speedup.
+     *
+     * @param c the comparator used to compare list elements, or null for
+     *          the natural order
+     * @throws ClassCastException              if the list contains elements
+     *                                         that are not mutually comparable
+     *                                         using the specified comparator
+     * @throws ConcurrentModificationException if the comparator modified
+     *                                         this list
+     */
+    public void parallelSort(Comparator<? super E> c) {
+        sort(c, true);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void sort(Comparator<? super E> c, boolean parallel) {
+        final Comparator<? super E> cmp = (c != null) ? c : (Comparator) Comparator.naturalOrder();
+        final int expectedModCount = modCount;
+        if (size > 1) {
+            final Node<E>[] nodes = nodeArray();
+            final Run<E> sorted = (parallel && nodes.length > PARALLEL_SORT_NODES)
+                    ? ForkJoinPool.commonPool().invoke(new SortTask(nodes, 0, nodes.length, cmp))
+                    : sortRange(nodes, 0, nodes.length, cmp);
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (sorted.packed)
+                replaceChain(sorted);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    /**
+     * Number of nodes up to which {@link #parallelSort} sorts a range of the
+     * node chain on one thread.
+     */
+    private static final int PARALLEL_SORT_NODES = 256;
+
+    /**
+     * Sorted sequence of elements held by the nodes from first to last,
+     * inclusive. The nodes are either a stretch of the node chain of the
+     * list, or packed nodes a merge linked only to each other.
+     */
+    private static final class Run<E> {
+        final Node<E> first;
+        final Node<E> last;
+        final int nodes;
+        final boolean packed;
+
+        Run(Node<E> first, Node<E> last, int nodes, boolean packed) {
+            this.first = first;
+            this.last = last;
+            this.nodes = nodes;
+            this.packed = packed;
+        }
+    }
+
+    /**
+     * Sorts nodes[lo, hi), each in place, and merges them into one run:
+     * the stretch of the chain itself if it is in order, a run of packed
+     * nodes otherwise.
+     */
+    private Run<E> sortRange(Node<E>[] nodes, int lo, int hi, Comparator<? super E> cmp) {
+        for (int i = lo; i < hi; i++) {
+            final Node<E> x = nodes[i];
+            if (x.numElements > 1)
+                Arrays.sort(x.writable(), x.head, x.head + x.numElements, cmp);
+        }
+        // stretches of nodes in order across their boundaries
+        final List<Run<E>> runs = new ArrayList<Run<E>>();
+        int start = lo;
+        for (int i = lo + 1; i <= hi; i++) {
+            if (i == hi || cmp.compare(nodes[i - 1].lastItem(), nodes[i].firstItem()) > 0) {
+                runs.add(new Run<E>(nodes[start], nodes[i - 1], i - start, false));
+                start = i;
+            }
+        }
+        return (runs.size() == 1) ? runs.get(0) : mergeRuns(runs, cmp);
+    }
+
+    /**
+     * Merges runs at once into packed nodes, taking equal elements from the
+     * earlier run first.
+     */
+    private Run<E> mergeRuns(List<Run<E>> runs, Comparator<? super E> cmp) {
+        // binary min-heap of cursors, ordered by head element and then run
+        final int k = runs.size();
+        final RunCursor<E>[] heap = newCursors(k);
+        for (int i = 0; i < k; i++)
+            heap[i] = new RunCursor<E>(runs.get(i), i);
+        for (int i = (k >> 1) - 1; i >= 0; i--)
+            siftDown(heap, i, k, cmp);
+
+        final Packer out = new Packer();
+        int n = k;
+        while (n > 0) {
+            final RunCursor<E> top = heap[0];
+            out.add(top.head);
+            if (!top.advance()) {
+                heap[0] = heap[--n];
+                heap[n] = null;
+            }
+            if (n > 1)
+                siftDown(heap, 0, n, cmp);
+        }
+        return out.toRun();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E> RunCursor<E>[] newCursors(int k) {
+        return (RunCursor<E>[]) new RunCursor[k];
+    }
+
+    private static <E> void siftDown(RunCursor<E>[] heap, int i, int n, Comparator<? super E> cmp) {
+        final RunCursor<E> c = heap[i];
+        for (int child; (child = (i << 1) + 1) < n; i = child) {
+            if (child + 1 < n && heap[child + 1].before(heap[child], cmp))
+                child++;
+            if (!heap[child].before(c, cmp))
+                break;
+            heap[i] = heap[child];
+        }
+        heap[i] = c;
+    }
+
+    /**
+     * Merges two runs, left holding the earlier elements, into packed nodes
+     * and returns the nodes of packed input runs to the pool. Two runs that
+     * are already in order are joined instead when they are adjacent in the
+     * chain or both packed.
+     */
+    private Run<E> merge(Run<E> left, Run<E> right, Comparator<? super E> cmp) {
+        if (cmp.compare(left.last.lastItem(), right.first.firstItem()) <= 0) {
+            if (!left.packed && !right.packed)
+                return new Run<E>(left.first, right.last, left.nodes + right.nodes, false);
+            if (left.packed && right.packed) {
+                left.last.next = right.first;
+                right.first.prev = left.last;
+                return new Run<E>(left.first, right.last, left.nodes + right.nodes, true);
+            }
+        }
+        final Packer out = new Packer();
+        final RunCursor<E> a = new RunCursor<E>(left, 0);
+        final RunCursor<E> b = new RunCursor<E>(right, 1);
+        for (; ; ) {
+            final RunCursor<E> next = b.before(a, cmp) ? b : a;
+            out.add(next.head);
+            if (!next.advance())
+                break;
+        }
+        for (final RunCursor<E> rest = a.done ? b : a; ; ) {
+            out.add(rest.head);
+            if (!rest.advance())
+                break;
+        }
+        releaseRun(left);
+        releaseRun(right);
+        return out.toRun();
+    }
+
+    /**
+     * Returns the arrays of the nodes of a packed run, which a merge copied
+     * elsewhere, to the pool.
+     */
+    private void releaseRun(Run<E> run) {
+        if (!run.packed)
+            return;
+        for (Node<E> x = run.first, end = run.last.next; x != end; ) {
+            final Node<E> next = x.next;
+            releaseItems(x);
+            x.prev = null;
+            x.next = null;
+            x = next;
+        }
+    }
+
+    /**
+     * Makes the packed nodes of run the node chain of this list, dropping
+     * the nodes it had.
+     */
+    private void replaceChain(Run<E> run) {
+        for (Node<E> x = first; x != null; ) {
+            final Node<E> next = x.next;
+            releaseItems(x);
+            x.prev = null;
+            x.next = null;
+            x = next;
+        }
+        first = run.first;
+        last = run.last;
+        nodeCount = run.nodes;
+        finger = null;
+        if (root != null)
+            rebuildIndex();
+    }
+
+    /**
+     * Position in a run: the element at offset of node, cached in head.
+     */
+    private static final class RunCursor<E> {
+        final Node<E> end;
+        final int order;
+        Node<E> node;
+        int offset;
+        E head;
+        boolean done;
+
+        RunCursor(Run<E> run, int order) {
+            this.end = run.last;
+            this.order = order;
+            node = run.first;
+            head = node.firstItem();
+        }
+
+        /**
+         * Tells if the head of this cursor comes before the head of other.
+         */
+        boolean before(RunCursor<E> other, Comparator<? super E> cmp) {
+            final int d = cmp.compare(head, other.head);
+            return d < 0 || (d == 0 && order < other.order);
+        }
+
+        /**
+         * Moves to the next element, returning false at the end of the run.
+         */
+        boolean advance() {
+            if (++offset == node.numElements) {
+                if (node == end) {
+                    done = true;
+                    return false;
+                }
+                node = node.next;
+                offset = 0;
+            }
+            head = node.items[node.head + offset];
+            return true;
+        }
+    }
+
+    /**
+     * Appends elements to a chain of packed new nodes.
+     */
+    private final class Packer {
+        Node<E> first;
+        Node<E> last;
+        int nodes;
+
+        void add(E e) {
+            Node<E> l = last;
+            if (l == null || l.numElements == nodeCapacity) {
+                final Node<E> n = newNode();
+                n.prev = l;
+                if (l == null)
+                    first = n;
+                else
+                    l.next = n;
+                last = l = n;
+                nodes++;
+            }
+            l.items[l.numElements++] = e;
+        }
+
+        Run<E> toRun() {
+            return new Run<E>(first, last, nodes, true);
+        }
+    }
+
+    /**
+     * Sorts nodes[lo, hi) of the chain by splitting the range in halves
+     * down to {@link #PARALLEL_SORT_NODES} nodes and merging the halves.
+     */
+    private final class SortTask extends RecursiveTask<Run<E>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Node<E>[] nodes;
+        private final int lo;
+        private final int hi;
+        private final Comparator<? super E> cmp;
+
+        SortTask(Node<E>[] nodes, int lo, int hi, Comparator<? super E> cmp) {
+            this.nodes = nodes;
+            this.lo = lo;
+            this.hi = hi;
+            this.cmp = cmp;
+        }
+
+        @Override
+        protected Run<E> compute() {
+            if (hi - lo <= PARALLEL_SORT_NODES)
+                return sortRange(nodes, lo, hi, cmp);
+            final int mid = (lo + hi) >>> 1;
+            final SortTask left = new SortTask(nodes, lo, mid, cmp);
+            left.fork();
+            final Run<E> right;
+            try {
+                right = new SortTask(nodes, mid, hi, cmp).compute();
+            } finally {
+                // left sorts nodes of the list, so it must be done even if right failed
+                left.quietlyJoin();
+            }
+            return merge(left.join(), right, cmp);
+        }
+    }
+
+    // Parallel Bulk Operations
+
+    /**
+     * Number of nodes up to which the parallel bulk operations process a
+     * range of the node chain on one thread.
+     */
+    private static final int PARALLEL_BULK_NODES = 64;
+
+    /**
+     * Performs the given action for each element of this list, in parallel
+     * on the common {@link ForkJoinPool}. The node chain is split into
+     * ranges of up to {@value #PARALLEL_BULK_NODES} nodes, whose elements
+     * are handed to the action by different threads, in no particular
+     * order. The action must therefore be safe to call concurrently, and
+     * must not modify this list.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException            if the specified action is null
+     * @throws ConcurrentModificationException if the action modified this
+     *                                         list
+     */
+    public void parallelForEach(final Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        forEachNodeRange(new RangeOp<E, Void>() {
+            @Override
+            public Void apply(Node<E>[] nodes, int lo, int hi) {
+                for (int k = lo; k < hi; k++) {
+                    final Node<E> x = nodes[k];
+                    final E[] items = x.items;
+                    for (int i = x.head, end = i + x.numElements; i < end; i++)
+                        action.accept(items[i]);
+                }
+                return null;
+            }
+
+            @Override
+            public Void combine(Void left, Void right) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Replaces each element of this list with the result of applying the
+     * operator to that element, in parallel on the common
+     * {@link ForkJoinPool}. Like {@link #parallelForEach}, every range of
+     * nodes is processed by one thread, writing straight into its node
+     * arrays, and the operator must be safe to call concurrently. If the
+     * operator throws, some of the elements may have been replaced.
+     *
+     * @param operator the operator to apply to each element
+     * @throws NullPointerException            if the specified operator is
+     *                                         null
+     * @throws ConcurrentModificationException if the operator modified this
+     *                                         list
+     */
+    public void parallelReplaceAll(final UnaryOperator<E> operator) {
+        if (operator == null)
+            throw new NullPointerException();
+        forEachNodeRange(new RangeOp<E, Void>() {
+            @Override
+            public Void apply(Node<E>[] nodes, int lo, int hi) {
+                for (int k = lo; k < hi; k++) {
+                    final Node<E> x = nodes[k];
+                    final E[] items = x.writable();
+                    for (int i = x.head, end = i + x.numElements; i < end; i++)
+                        items[i] = operator.apply(items[i]);
+                }
+                return null;
+            }
+
+            @Override
+            public Void combine(Void left, Void right) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Performs a reduction on the elements of this list, in parallel on the
+     * common {@link ForkJoinPool}, like
+     * {@link java.util.stream.Stream#reduce(Object, BinaryOperator)} does
+     * on {@code parallelStream()}. The accumulator must be associative and
+     * the identity an identity for it.
+     *
+     * @param identity    the identity value of the accumulator
+     * @param accumulator an associative function combining two values
+     * @return the result of the reduction, {@code identity} for an empty
+     * list
+     * @throws NullPointerException            if the specified accumulator is
+     *                                         null
+     * @throws ConcurrentModificationException if the accumulator modified
+     *                                         this list
+     */
+    public E parallelReduce(E identity, BinaryOperator<E> accumulator) {
+        return parallelReduce(identity, accumulator, accumulator);
+    }
+
+    /**
+     * Performs a reduction on the elements of this list, in parallel on the
+     * common {@link ForkJoinPool}, like
+     * {@link java.util.stream.Stream#reduce(Object, BiFunction, BinaryOperator)}
+     * does on {@code parallelStream()}. Every range of nodes is folded into
+     * its own result, starting from {@code identity}, in list order, and
+     * the results of neighbouring ranges are combined, left before right.
+     *
+     * @param identity    the identity value of the combiner
+     * @param accumulator an associative function folding an element into a
+     *                    result
+     * @param combiner    an associative function combining two results,
+     *                    compatible with the accumulator
+     * @param <U>         the type of the result
+     * @return the result of the reduction, {@code identity} for an empty
+     * list
+     * @throws NullPointerException            if the specified accumulator or
+     *                                         combiner is null
+     * @throws ConcurrentModificationException if the accumulator or combiner
+     *                                         modified this list
+     */
+    public <U> U parallelReduce(final U identity,
+                                final BiFunction<U, ? super E, U> accumulator,
+                                final BinaryOperator<U> combiner) {
+        if (accumulator == null || combiner == null)
+            throw new NullPointerException();
+        final U result = forEachNodeRange(new RangeOp<E, U>() {
+            @Override
+            public U apply(Node<E>[] nodes, int lo, int hi) {
+                U u = identity;
+                for (int k = lo; k < hi; k++) {
+                    final Node<E> x = nodes[k];
+                    final E[] items = x.items;
+                    for (int i = x.head, end = i + x.numElements; i < end; i++)
+                        u = accumulator.apply(u, items[i]);
+                }
+                return u;
+            }
+
+            @Override
+            public U combine(U left, U right) {
+                return combiner.apply(left, right);
+            }
+        });
+        return (size > 0) ? result : identity;
+    }
+
+    /**
+     * Applies op to all nodes of this list, on the common
+     * {@link ForkJoinPool} unless there are only a few of them, and returns
+     * the combined result, null for an empty list.
+     */
+    private <R> R forEachNodeRange(RangeOp<E, R> op) {
+        final int expectedModCount = modCount;
+        R result = null;
+        if (size > 0) {
+            final Node<E>[] nodes = nodeArray();
+            result = (nodes.length > PARALLEL_BULK_NODES)
+                    ? ForkJoinPool.commonPool().invoke(new RangeTask<E, R>(nodes, 0, nodes.length, op))
+                    : op.apply(nodes, 0, nodes.length);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        return result;
+    }
+
+    /**
+     * Returns the nodes of this list, in chain order.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Node<E>[] nodeArray() {
+        final Node<E>[] nodes = (Node<E>[]) new Node[nodeCount];
+        int k = 0;
+        for (Node<E> x = first; x != null; x = x.next)
+            nodes[k++] = x;
+        return nodes;
+    }
+
+    /**
+     * Operation of a parallel bulk operation on a range of nodes, and how
+     * the results of neighbouring ranges are combined.
+     */
+    private interface RangeOp<E, R> {
+        R apply(Node<E>[] nodes, int lo, int hi);
+
+        R combine(R left, R right);
+    }
+
+    /**
+     * Applies an operation to nodes[lo, hi) of the chain by splitting the
+     * range in halves down to {@link #PARALLEL_BULK_NODES} nodes and
+     * combining the results of the halves.
+     */
+    private static final class RangeTask<E, R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final Node<E>[] nodes;
+        private final int lo;
+        private final int hi;
+        private final RangeOp<E, R> op;
+
+        RangeTask(Node<E>[] nodes, int lo, int hi, RangeOp<E, R> op) {
+            this.nodes = nodes;
+            this.lo = lo;
+            this.hi = hi;
+            this.op = op;
+        }
+
+        @Override
+        protected R compute() {
+            if (hi - lo <= PARALLEL_BULK_NODES)
+                return op.apply(nodes, lo, hi);
+            final int mid = (lo + hi) >>> 1;
+            final RangeTask<E, R> left = new RangeTask<E, R>(nodes, lo, mid, op);
+            left.fork();
+            final R right;
+            try {
+                right = new RangeTask<E, R>(nodes, mid, hi, op).compute();
+            } finally {
+                // left may write to nodes of the list, so it must be done even if right failed
+                left.quietlyJoin();
+            }
+            return op.combine(left.join(), right);
+        }
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive. Every
+     * node lying entirely inside the range is cut out of the chain at once,
+     * only the two nodes holding the ends of the range are trimmed and
+     * merged with their neighbours if needed.
+     *
+     * @param fromIndex index of first element to be removed
+     * @param toIndex   index after last element to be removed
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex)
+            return;
+        final Node<E> x = node(fromIndex);
+        final int from = fromIndex - fingerIndex;
+        final Node<E> y = node(toIndex - 1);
+        final int to = toIndex - fingerIndex;
+        finger = null;
+
+        if (x == y) {
+            // close the gap from whichever side holds fewer elements
+            final int n = x.numElements;
+            final int h = x.head;
+            final int gap = to - from;
+            final E[] items = x.writable();
+            if (from < n - to) {
+                System.arraycopy(items, h, items, h + gap, from);
+                Arrays.fill(items, h, h + gap, null);
+                x.head = h + gap;
+            } else {
+                System.arraycopy(items, h + to, items, h + from, n - to);
+                Arrays.fill(items, h + n - gap, h + n, null);
+            }
+            x.resize(-gap);
+            afterDelete(x);
+        } else {
+            Node<E> n = x.next;
+            x.next = y;
+            y.prev = x;
+            while (n != y) {
+                final Node<E> next = n.next;
+                if (root != null) {
+                    n.resize(-n.numElements);
+                    unindexNode(n);
+                }
+                releaseItems(n);
+                n.prev = null;
+                n.next = null;
+                nodeCount--;
+                n = next;
+            }
+
+            Arrays.fill(x.writable(), x.head + from, x.head + x.numElements, null);
+            x.resize(from - x.numElements);
+            Arrays.fill(y.writable(), y.head, y.head + to, null);
+            y.head += to;
+            y.resize(-to);
+
+            afterDelete(y);
+            if (x.items != null)
+                afterDelete(x);
+        }
+        size -= toIndex - fromIndex;
+        modCount++;
+        compactIfSparse();
+    }
+
+    /**
+     * Repacks the elements of this list into full nodes and releases the
+     * nodes left over. Equivalent to {@code compact(1f)}.
+     *
+     * @see #compact(float)
+     */
+    public void compact() {
+        compact(1f);
+    }
+
+    /**
+     * Repacks the elements of this list into full nodes and releases the
+     * nodes left over, like {@code ArrayList.trimToSize} drops the spare
+     * capacity of its array. Equivalent to {@link #compact()}.
+     */
+    public void trimToSize() {
+        compact(1f);
+    }
+
+    /**
+     * Repacks the elements of this list, in one pass over the node chain,
+     * so that every node but the last holds {@code fillFactor} of the node
+     * capacity, and releases the nodes left over.
+     * <p/>
+     * <p>Removals only merge a node with a neighbour once it drops to half
+     * of its capacity, so a list that had many of its elements removed can
+     * be left with most nodes just over half full. Compacting it saves the
+     * spare slots and the node headers and shortens the walks of positional
+     * access. Full nodes are split by the next insert into them though, so
+     * a list that keeps taking inserts in the middle is better compacted to
+     * a lower fill factor, leaving room in every node.
+     * <p/>
+     * <p>Elements are moved towards the head of the list into the nodes
+     * already there, and new nodes are only linked where a node held more
+     * elements than the target. The index of an indexed list is rebuilt
+     * once at the end.
+     *
+     * @param fillFactor the share of the node capacity every node but the
+     *                   last is filled to
+     * @throws IllegalArgumentException if {@code fillFactor} is not in
+     *                                  {@code (0, 1]}
+     */
+    public void compact(float fillFactor) {
+        if (!(fillFactor > 0f && fillFactor <= 1f))
+            throw new IllegalArgumentException("Illegal fill factor: " + fillFactor);
+        final int target = Math.max(1, Math.round(nodeCapacity * fillFactor));
+        finger = null;
+        modCount++;
+        if (size == 0)
+            return;
+        // counts are only fixed up in the index once every node is packed
+        final boolean reindex = root != null;
+        root = null;
+
+        Node<E> d = first;      // node being filled
+        int p = 0;              // number of elements packed into d
+        boolean ahead = false;  // whether d was linked after s
+        for (Node<E> s = first; s != null; ) {
+            final Node<E> nextSource = s.next;
+            final int h = s.head;
+            final int n = s.numElements;
+            int packed = -1;    // elements s kept, if s was filled and left
+            for (int q = 0; q < n; ) {
+                if (p == target) {
+                    if (d == s) {
+                        packed = p;
+                        d.numElements = p;
+                        d.head = 0;
+                    } else {
+                        packNode(d, p);
+                    }
+                    if (d == s || ahead) {
+                        // the next node still holds elements to move
+                        final Node<E> fresh = newNode();
+                        linkNodeAfter(d, fresh);
+                        d = fresh;
+                        ahead = true;
+                    } else {
+                        d = d.next;
+                    }
+                    p = 0;
+                }
+                final int k = Math.min(target - p, n - q);
+                if (d != s || p != h + q)
+                    System.arraycopy(s.items, h + q, d.writable(), p, k);
+                p += k;
+                q += k;
+            }
+            if (packed >= 0 && packed < h + n)
+                Arrays.fill(s.writable(), packed, h + n, null);
+            ahead = false;
+            s = nextSource;
+        }
+        packNode(d, p);
+
+        for (Node<E> x = d.next; x != null; ) {
+            final Node<E> next = x.next;
+            releaseItems(x);
+            x.prev = null;
+            x.next = null;
+            nodeCount--;
+            x = next;
+        }
+        d.next = null;
+        last = d;
+        if (reindex)
+            rebuildIndex();
+    }
+
+    /**
+     * Sets the element count of node d, which compact filled with p
+     * elements from the start of its array, clearing the slots it no longer
+     * uses.
+     */
+    private void packNode(Node<E> d, int p) {
+        final int end = d.head + d.numElements;
+        if (end > p)
+            Arrays.fill(d.writable(), p, end, null);
+        d.head = 0;
+        d.numElements = p;
+    }
+
+    /**
+     * Returns the share of the element slots of the nodes of this list that
+     * hold an element, 1 for an empty list.
+     *
+     * @return the fill factor of this list
+     */
+    public float fillFactor() {
+        return (nodeCount == 0) ? 1f : (float) size / ((long) nodeCount * nodeCapacity);
+    }
+
+    /**
+     * Returns the fill factor below which removals compact this list, or 0
+     * if they never do.
+     *
+     * @return the automatic compaction threshold
+     * @see #setCompactThreshold(float)
+     */
+    public float getCompactThreshold() {
+        return compactThreshold;
+    }
+
+    /**
+     * Makes removals {@link #compact() compact} this list once its
+     * {@link #fillFactor() fill factor} drops below {@code threshold}, or
+     * stops them from doing so if {@code threshold} is 0, the default.
+     * Lists of a few nodes are never compacted automatically.
+     * <p/>
+     * <p>A list that was just compacted is full, so removals must drop about
+     * {@code 1 - threshold} of its elements before it is compacted again and
+     * the linear cost of compacting is spread over them. Removals through an
+     * iterator do not trigger compaction.
+     *
+     * @param threshold the fill factor below which removals compact this
+     *                  list, or 0
+     * @throws IllegalArgumentException if {@code threshold} is not in
+     *                                  {@code [0, 1)}
+     */
+    public void setCompactThreshold(float threshold) {
+        if (!(threshold >= 0f && threshold < 1f))
+            throw new IllegalArgumentException("Illegal compact threshold: " + threshold);
+        compactThreshold = threshold;
+    }
+
+    /**
+     * Returns a view of the node structure of this list, and of its
+     * counters if metrics are enabled. Walks the node chain once to build
+     * the fill histogram.
+     *
+     * @return the current statistics of this list
+     * @see #setMetricsEnabled(boolean)
+     */
+    public ListStats stats() {
+        final int[] histogram = new int[nodeCapacity + 1];
+        for (Node<E> x = first; x != null; x = x.next)
+            histogram[x.numElements]++;
+        return new ListStats(size, nodeCapacity, nodeCount, histogram, metrics);
+    }
+
+    /**
+     * Returns {@code true} if this list counts its splits, merges and node
+     * walks.
+     *
+     * @return whether metrics are enabled
+     */
+    public boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    /**
+     * Starts or stops counting splits of full nodes, merges of half-empty
+     * ones and the nodes positional lookups walk, as reported by
+     * {@link #stats()}. Enabling metrics that are already on keeps the
+     * counts; disabling them drops the counts. Metrics are off by default,
+     * and a disabled list only pays a null check on the paths that count.
+     * <p/>
+     * <p>While metrics are enabled, every split, merge and lookup walking
+     * at least {@link #LONG_WALK_NODES} nodes also commits a JDK Flight
+     * Recorder event named {@code com.vasyutinskiy.list.NodeSplit},
+     * {@code NodeMerge} or {@code LongNodeWalk} when running on a JDK with
+     * Flight Recorder and a recording enabled the event.
+     *
+     * @param enabled whether to count
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (!enabled)
+            metrics = null;
+        else if (metrics == null)
+            metrics = new ListMetrics();
+    }
+
+    /**
+     * Compacts this list if automatic compaction is on and the fill factor
+     * dropped below the threshold.
+     */
+    private void compactIfSparse() {
+        if (compactThreshold > 0f && nodeCount > AUTO_COMPACT_MIN_NODES
+                && size < compactThreshold * ((long) nodeCount * nodeCapacity))
+            compact();
+    }
+
+    // Queue operations.
+
+    /**
+     * Retrieves, but does not remove, the head (first element) of this list.
+     *
+     * @return the head of this list, or {@code null} if this list is empty
+     * @since 1.5
+     */
+    public E peek() {
+        final Node<E> f = first;
+        return (f == null) ? null : f.items[f.head];
+    }
+
+    /**
+     * Retrieves, but does not remove, the head (first element) of this list.
+     *
+     * @return the head of this list
+     * @throws NoSuchElementException if this list is empty
+     * @since 1.5
+     */
+    public E element() {
+        return getFirst();
+    }
+
+    /**
+     * Retrieves and removes the head (first element) of this list.
+     *
+     * @return the head of this list, or {@code null} if this list is empty
+     * @since 1.5
+     */
+    public E poll() {
+        final Node<E> f = first;
+        return (f == null) ? null : unlinkFirst(f);
+    }
+
+    /**
+     * Retrieves and removes the head (first element) of this list.
+     *
+     * @return the head of this list
+     * @throws NoSuchElementException if this list is empty
+     * @since 1.5
+     */
+    public E remove() {
+        return removeFirst();
+    }
+
+    /**
+     * Adds the specified element as the tail (last element) of this list.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Queue#offer})
+     * @since 1.5
+     */
+    public boolean offer(E e) {
+        return add(e);
     }
 
     // Deque operations
@@ -583,7 +2210,7 @@ public class UnrolledLinkedList<E>
      */
     public E peekFirst() {
         final Node<E> f = first;
-        return (f == null) ? null : f.items[0];
+        return (f == null) ? null : f.items[f.head];
     }
 
     /**
@@ -596,7 +2223,7 @@ public class UnrolledLinkedList<E>
      */
     public E peekLast() {
         final Node<E> l = last;
-        return (l == null) ? null : l.items[l.numElements - 1];
+        return (l == null) ? null : l.items[l.head + l.numElements - 1];
     }
 
     /**
@@ -613,16 +2240,147 @@ public class UnrolledLinkedList<E>
     }
 
     /**
-     * Retrieves and removes the last element of this list,
-     * or returns {@code null} if this list is empty.
-     *
-     * @return the last element of this list, or {@code null} if
-     *         this list is empty
-     * @since 1.6
+     * Retrieves and removes the last element of this list,
+     * or returns {@code null} if this list is empty.
+     *
+     * @return the last element of this list, or {@code null} if
+     *         this list is empty
+     * @since 1.6
+     */
+    public E pollLast() {
+        final Node<E> l = last;
+        return (l == null) ? null : unlinkLast(l);
+    }
+
+    /**
+     * Retrieves and removes up to {@code n} elements from the front of this
+     * list, storing them into {@code dst} in list order, starting at index
+     * 0. The elements are copied node by node and the nodes they emptied
+     * are cut out of the chain at once, as by {@code subList(0, k).clear()}.
+     *
+     * @param n   the maximum number of elements to remove
+     * @param dst the array to store the removed elements into
+     * @return the number of elements removed, {@code min(n, size())}
+     * @throws IndexOutOfBoundsException if {@code n} is negative or greater
+     *                                   than {@code dst.length}
+     * @throws ArrayStoreException       if the runtime type of {@code dst} is
+     *                                   not a supertype of the runtime type
+     *                                   of every removed element
+     */
+    public int pollFirst(int n, E[] dst) {
+        checkBatch(n, dst);
+        final int k = Math.min(n, size);
+        if (k > 0) {
+            copyOut(0, k, dst);
+            removeRange(0, k);
+        }
+        return k;
+    }
+
+    /**
+     * Retrieves and removes up to {@code n} elements from the end of this
+     * list, storing them into {@code dst} in list order, starting at index
+     * 0; the last element of this list ends up last. Otherwise like
+     * {@link #pollFirst(int, Object[])}.
+     *
+     * @param n   the maximum number of elements to remove
+     * @param dst the array to store the removed elements into
+     * @return the number of elements removed, {@code min(n, size())}
+     * @throws IndexOutOfBoundsException if {@code n} is negative or greater
+     *                                   than {@code dst.length}
+     * @throws ArrayStoreException       if the runtime type of {@code dst} is
+     *                                   not a supertype of the runtime type
+     *                                   of every removed element
+     */
+    public int pollLast(int n, E[] dst) {
+        checkBatch(n, dst);
+        final int k = Math.min(n, size);
+        if (k > 0) {
+            copyOut(size - k, k, dst);
+            removeRange(size - k, size);
+        }
+        return k;
+    }
+
+    /**
+     * Removes all elements of this list and adds them to the given
+     * collection, like {@link java.util.concurrent.BlockingQueue#drainTo}.
+     *
+     * @param c the collection to transfer elements into
+     * @return the number of elements transferred
+     * @throws NullPointerException     if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *                                  list
+     * @see #drainTo(Collection, int)
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes up to {@code maxElements} elements from the front of this list
+     * and adds them to the given collection, in list order, like
+     * {@link java.util.concurrent.BlockingQueue#drainTo}. The elements of
+     * each node are handed to {@code c.addAll} as one slice, copied so that
+     * {@code c} never sees the node arrays, and the nodes they emptied are
+     * cut out of the chain at once when all are added.
+     * <p/>
+     * <p>If adding to {@code c} fails, its exception is thrown and the
+     * elements of the nodes added before are removed from this list;
+     * elements of the failing node may be in both or only in this list.
+     *
+     * @param c           the collection to transfer elements into
+     * @param maxElements the maximum number of elements to transfer
+     * @return the number of elements transferred
+     * @throws NullPointerException     if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *                                  list
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        final int k = Math.min(maxElements, size);
+        if (k <= 0)
+            return 0;
+        final int expectedModCount = modCount;
+        int done = 0;
+        boolean comodified = false;
+        try {
+            for (Node<E> x = first; done < k; x = x.next) {
+                final int m = Math.min(x.numElements, k - done);
+                c.addAll(Arrays.asList(Arrays.copyOfRange(x.items, x.head, x.head + m)));
+                done += m;
+            }
+        } finally {
+            // leave a list c changed alone, but do not hide an exception of
+            // c.addAll behind the one for that
+            comodified = modCount != expectedModCount;
+            if (!comodified)
+                removeRange(0, done);
+        }
+        if (comodified)
+            throw new ConcurrentModificationException();
+        return k;
+    }
+
+    private void checkBatch(int n, Object[] dst) {
+        if (n < 0 || n > dst.length)
+            throw new IndexOutOfBoundsException("n: " + n + ", length: " + dst.length);
+    }
+
+    /**
+     * Copies the len elements from index on to the start of dst.
      */
-    public E pollLast() {
-        final Node<E> l = last;
-        return (l == null) ? null : unlinkLast(l);
+    private void copyOut(int index, int len, Object[] dst) {
+        Node<E> x = node(index);
+        int i = index - fingerIndex;
+        for (int k = 0; k < len; x = x.next, i = 0) {
+            final int m = Math.min(x.numElements - i, len - k);
+            System.arraycopy(x.items, x.head + i, dst, k, m);
+            k += m;
+        }
     }
 
     /**
@@ -679,8 +2437,9 @@ public class UnrolledLinkedList<E>
         if (o == null) {
             for (Node<E> x = last; x != null; x = x.prev) {
                 for (int i = x.numElements - 1; i >= 0; i--) {
-                    if (x.items[i] == null) {
-                        x.deleteElementWithIndex(i);
+                    if (x.items[x.head + i] == null) {
+                        unlink(x, i);
+                        compactIfSparse();
                         return true;
                     }
                 }
@@ -688,8 +2447,9 @@ public class UnrolledLinkedList<E>
         } else {
             for (Node<E> x = last; x != null; x = x.prev) {
                 for (int i = x.numElements - 1; i >= 0; i--) {
-                    if (o.equals(x.items[i])) {
-                        x.deleteElementWithIndex(i);
+                    if (o.equals(x.items[x.head + i])) {
+                        unlink(x, i);
+                        compactIfSparse();
                         return true;
                     }
                 }
@@ -705,13 +2465,31 @@ public class UnrolledLinkedList<E>
     }
 
     private class ListItr implements ListIterator<E> {
-        private Node<E> next;
+        /**
+         * Cursor: the next element is at {@code offset} of {@code node}, or
+         * in the following node when {@code offset == node.numElements}.
+         * {@code node} is null only while the list is empty.
+         */
+        private Node<E> node;
+        private int offset;
+        private Node<E> lastReturned;
+        private int lastReturnedOffset;
         private int nextIndex;
         private int expectedModCount = modCount;
 
         ListItr(int index) {
-            next = (index == size) ? null : node(index);
+            seek(index);
+        }
+
+        private void seek(int index) {
             nextIndex = index;
+            if (index == size) {
+                node = last;
+                offset = (node == null) ? 0 : node.numElements;
+            } else {
+                node = node(index);
+                offset = index - fingerIndex;
+            }
         }
 
         public boolean hasNext() {
@@ -722,12 +2500,14 @@ public class UnrolledLinkedList<E>
             checkForComodification();
             if (!hasNext())
                 throw new NoSuchElementException();
-            if (next.elementOffset == next.numElements) {
-                next = next.next;
-                next.elementOffset = 0;
+            if (offset == node.numElements) {
+                node = node.next;
+                offset = 0;
             }
+            lastReturned = node;
+            lastReturnedOffset = offset++;
             nextIndex++;
-            return next.items[next.elementOffset++];
+            return node.items[node.head + lastReturnedOffset];
         }
 
         public boolean hasPrevious() {
@@ -738,16 +2518,14 @@ public class UnrolledLinkedList<E>
             checkForComodification();
             if (!hasPrevious())
                 throw new NoSuchElementException();
-
-            if (next.elementOffset < 0) {
-                next = next.prev;
-                if (next == null) {
-                    next = last;
-                }
-                next.elementOffset = next.numElements;
+            if (offset == 0) {
+                node = node.prev;
+                offset = node.numElements;
             }
+            lastReturned = node;
+            lastReturnedOffset = --offset;
             nextIndex--;
-            return next.items[next.elementOffset--];
+            return node.items[node.head + offset];
         }
 
         public int nextIndex() {
@@ -760,30 +2538,37 @@ public class UnrolledLinkedList<E>
 
         public void remove() {
             checkForComodification();
-            if (next == null)
+            if (lastReturned == null)
                 throw new IllegalStateException();
 
-            next.deleteElementWithIndex(next.elementOffset);
-            Node<E> lastNext = node(nextIndex);
-            nextIndex--;
-            next = lastNext;
+            // the cursor sits right after lastReturned if it came from next()
+            int index = (lastReturnedOffset < offset) ? nextIndex - 1 : nextIndex;
+            finger = lastReturned;
+            fingerIndex = index - lastReturnedOffset;
+            unlink(lastReturned, lastReturnedOffset);
+            lastReturned = null;
+            seek(index);
             expectedModCount++;
         }
 
         public void set(E e) {
-            if (next == null)
+            if (lastReturned == null)
                 throw new IllegalStateException();
             checkForComodification();
-            next.items[next.elementOffset] = e;
+            lastReturned.writable()[lastReturned.head + lastReturnedOffset] = e;
         }
 
         public void add(E e) {
             checkForComodification();
-            if (next == null)
+            lastReturned = null;
+            if (nextIndex == size) {
                 linkLast(e);
-            else
-                next.addOnIndex(next.elementOffset, e);
-            nextIndex++;
+            } else {
+                finger = node;
+                fingerIndex = nextIndex - offset;
+                linkBefore(node, offset, e);
+            }
+            seek(nextIndex + 1);
             expectedModCount++;
         }
 
@@ -793,186 +2578,695 @@ public class UnrolledLinkedList<E>
         }
     }
 
-    private static class Node<E> {
-        public static final int NODE_CAPACITY = 32;
-        public static final int HALF_NODE_CAPACITY = NODE_CAPACITY / 2;
-        public static final Object[] NULL_ARRAY = new Object[HALF_NODE_CAPACITY];
-        int numElements = 0;
-        E[] items;
-        Node<E> next;
-        Node<E> prev;
-        int elementOffset = 0;
+    /**
+     * Returns a view of the portion of this list between the specified
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive. The view
+     * remembers the nodes holding its first and last element, so its
+     * lookups, iterators and bulk traversals start at those nodes instead of
+     * walking in from the ends of the list. Structural changes made other
+     * than through the view make it fail with a
+     * {@code ConcurrentModificationException}.
+     *
+     * @param fromIndex low endpoint (inclusive) of the subList
+     * @param toIndex   high endpoint (exclusive) of the subList
+     * @return a view of the specified range within this list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws IllegalArgumentException  {@inheritDoc}
+     */
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+        subListRangeCheck(fromIndex, toIndex, size);
+        return new SubList(null, fromIndex, toIndex - fromIndex);
+    }
+
+    private static void subListRangeCheck(int fromIndex, int toIndex, int size) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex = " + fromIndex);
+        if (toIndex > size)
+            throw new IndexOutOfBoundsException("toIndex = " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IllegalArgumentException("fromIndex(" + fromIndex +
+                    ") > toIndex(" + toIndex + ")");
+    }
 
-        Node(Node<E> prev, E element, Node<E> next) {
-            this.items = (E[]) new Object[NODE_CAPACITY];
-            this.items[0] = element;
-            numElements++;
-            this.next = next;
-            this.prev = prev;
+    private class SubList extends AbstractList<E> {
+        private final SubList parent;
+        private final int offset;
+        private int size;
+        private int expectedModCount = UnrolledLinkedList.this.modCount;
+
+        /**
+         * Nodes holding the first and the last element of the view, at
+         * {@code headOffset} and {@code tailOffset}. Resolved on first use
+         * and dropped whenever the view changes the list structure.
+         */
+        private Node<E> head;
+        private int headOffset;
+        private Node<E> tail;
+        private int tailOffset;
+
+        SubList(SubList parent, int offset, int size) {
+            this.parent = parent;
+            this.offset = offset;
+            this.size = size;
         }
 
-        private Node() {
-            this.items = (E[]) new Object[NODE_CAPACITY];
+        private Node<E> head() {
+            if (head == null) {
+                head = node(offset);
+                headOffset = offset - fingerIndex;
+            }
+            return head;
         }
 
-        void addToHead(E e) {
-            if (numElements == NODE_CAPACITY) {
-                moveHalfToNext();
+        private Node<E> tail() {
+            if (tail == null) {
+                final int index = offset + size - 1;
+                tail = node(index);
+                tailOffset = index - fingerIndex;
             }
-            System.arraycopy(items, 0, items, 1, numElements);
-            items[numElements] = e;
-            numElements++;
+            return tail;
         }
 
-        void addToTail(E e) {
-            if (numElements == NODE_CAPACITY) {
-                moveHalfToPrev();
+        /**
+         * Moves the finger of the list to the boundary node closest to list
+         * index {@code index}, unless it already is closer.
+         */
+        private void seat(int index) {
+            final int fromHead = index - offset;
+            final int fromTail = offset + size - 1 - index;
+            if (finger != null && Math.abs(index - fingerIndex) <= Math.min(fromHead, fromTail))
+                return;
+            if (fromHead <= fromTail) {
+                finger = head();
+                fingerIndex = offset - headOffset;
+            } else {
+                finger = tail();
+                fingerIndex = offset + size - 1 - tailOffset;
+            }
+        }
+
+        public E get(int index) {
+            rangeCheck(index);
+            checkForComodification();
+            final int i = offset + index;
+            seat(i);
+            final Node<E> x = node(i);
+            return x.items[x.head + i - fingerIndex];
+        }
+
+        public E set(int index, E element) {
+            rangeCheck(index);
+            checkForComodification();
+            final int i = offset + index;
+            seat(i);
+            final Node<E> x = node(i);
+            final int j = x.head + i - fingerIndex;
+            final E oldVal = x.items[j];
+            x.writable()[j] = element;
+            return oldVal;
+        }
+
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        public void add(int index, E element) {
+            rangeCheckForAdd(index);
+            checkForComodification();
+            if (size > 0)
+                seat(offset + Math.min(index, size - 1));
+            UnrolledLinkedList.this.add(offset + index, element);
+            updateSizeAndModCount(1);
+        }
+
+        public E remove(int index) {
+            rangeCheck(index);
+            checkForComodification();
+            seat(offset + index);
+            final E result = UnrolledLinkedList.this.remove(offset + index);
+            updateSizeAndModCount(-1);
+            return result;
+        }
+
+        protected void removeRange(int fromIndex, int toIndex) {
+            checkForComodification();
+            if (fromIndex >= toIndex)
+                return;
+            seat(offset + fromIndex);
+            UnrolledLinkedList.this.removeRange(offset + fromIndex, offset + toIndex);
+            updateSizeAndModCount(fromIndex - toIndex);
+        }
+
+        public boolean addAll(Collection<? extends E> c) {
+            return addAll(size, c);
+        }
+
+        public boolean addAll(int index, Collection<? extends E> c) {
+            rangeCheckForAdd(index);
+            checkForComodification();
+            final int cSize = c.size();
+            if (cSize == 0)
+                return false;
+            if (size > 0)
+                seat(offset + Math.min(index, size - 1));
+            UnrolledLinkedList.this.addAll(offset + index, c);
+            updateSizeAndModCount(cSize);
+            return true;
+        }
+
+        public Iterator<E> iterator() {
+            return listIterator();
+        }
+
+        public ListIterator<E> listIterator(final int index) {
+            checkForComodification();
+            rangeCheckForAdd(index);
+            if (index < size)
+                seat(offset + index);
+
+            return new ListIterator<E>() {
+                private final ListItr i = new ListItr(offset + index);
+
+                public boolean hasNext() {
+                    return nextIndex() < size;
+                }
+
+                public E next() {
+                    if (hasNext())
+                        return i.next();
+                    else
+                        throw new NoSuchElementException();
+                }
+
+                public boolean hasPrevious() {
+                    return previousIndex() >= 0;
+                }
+
+                public E previous() {
+                    if (hasPrevious())
+                        return i.previous();
+                    else
+                        throw new NoSuchElementException();
+                }
+
+                public int nextIndex() {
+                    return i.nextIndex() - offset;
+                }
+
+                public int previousIndex() {
+                    return i.previousIndex() - offset;
+                }
+
+                public void remove() {
+                    i.remove();
+                    updateSizeAndModCount(-1);
+                }
+
+                public void set(E e) {
+                    i.set(e);
+                }
+
+                public void add(E e) {
+                    i.add(e);
+                    updateSizeAndModCount(1);
+                }
+            };
+        }
+
+        public List<E> subList(int fromIndex, int toIndex) {
+            subListRangeCheck(fromIndex, toIndex, size);
+            return new SubList(this, offset + fromIndex, toIndex - fromIndex);
+        }
 
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            checkForComodification();
+            if (size == 0)
+                return;
+            Node<E> x = head();
+            int i = headOffset;
+            for (int n = size; n > 0 && UnrolledLinkedList.this.modCount == expectedModCount; x = x.next, i = 0) {
+                final E[] items = x.items;
+                final int end = Math.min(x.numElements, i + n);
+                n -= end - i;
+                for (final int h = x.head; i < end; i++)
+                    action.accept(items[h + i]);
             }
-            items[numElements] = e;
-            numElements++;
+            if (UnrolledLinkedList.this.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
         }
 
-        void addOnIndex(int index, E e) {
+        public Object[] toArray() {
+            checkForComodification();
+            final Object[] result = new Object[size];
+            copyInto(result);
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            checkForComodification();
+            if (a.length < size)
+                a = (T[]) java.lang.reflect.Array.newInstance(
+                        a.getClass().getComponentType(), size);
+            copyInto(a);
+            if (a.length > size)
+                a[size] = null;
+            return a;
+        }
 
-            if (numElements == NODE_CAPACITY) {
-                moveHalfToNext();
+        private void copyInto(Object[] a) {
+            if (size == 0)
+                return;
+            Node<E> x = head();
+            int i = headOffset;
+            for (int k = 0; k < size; x = x.next, i = 0) {
+                final int n = Math.min(x.numElements - i, size - k);
+                System.arraycopy(x.items, x.head + i, a, k, n);
+                k += n;
             }
-            if (index > NODE_CAPACITY) {
-                next.addOnIndex(index, e);
-            } else {
-                System.arraycopy(items, index, items, index + 1, numElements - index);
-                numElements++;
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            checkForComodification();
+            final Node<E> x = (size == 0) ? null : head();
+            return new NodeSpliterator<E>(UnrolledLinkedList.this, x, headOffset, size,
+                    UnrolledLinkedList.this.modCount);
+        }
+
+        private void rangeCheck(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        }
+
+        private void rangeCheckForAdd(int index) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        }
+
+        private String outOfBoundsMsg(int index) {
+            return "Index: " + index + ", Size: " + size;
+        }
+
+        private void checkForComodification() {
+            if (UnrolledLinkedList.this.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        /**
+         * Applies a structural change made through this view to it and to
+         * every view it was taken from.
+         */
+        private void updateSizeAndModCount(int sizeChange) {
+            for (SubList s = this; s != null; s = s.parent) {
+                s.size += sizeChange;
+                s.expectedModCount = UnrolledLinkedList.this.modCount;
+                s.modCount++;
+                s.head = null;
+                s.tail = null;
             }
         }
+    }
 
-        private void moveHalfToNext() {
-            Node<E> newNode;
-            if (next != null && next.numElements < HALF_NODE_CAPACITY) {
-                newNode = next;
-            } else {
-                newNode = new Node<E>();
-                newNode.prev = this;
-                newNode.next = this.next;
-                next.prev = newNode;
-                next = newNode;
+    /**
+     * Creates a late-binding and fail-fast {@link Spliterator} over the
+     * elements in this list. It reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED} and {@link Spliterator#ORDERED}, splits
+     * at node boundaries and traverses the node arrays directly, so parallel
+     * streams divide the list without copying it.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new NodeSpliterator<E>(this, null, 0, -1, 0);
+    }
+
+    /**
+     * Spliterator over a run of {@code est} elements starting at
+     * {@code offset} of {@code current}.
+     */
+    private static final class NodeSpliterator<E> implements Spliterator<E> {
+        final UnrolledLinkedList<E> list;
+        Node<E> current;      // node holding the next element
+        int offset;           // offset of the next element in current
+        int est;              // remaining elements; -1 until first use
+        int expectedModCount; // initialized when est set
+
+        NodeSpliterator(UnrolledLinkedList<E> list, Node<E> current, int offset,
+                        int est, int expectedModCount) {
+            this.list = list;
+            this.current = current;
+            this.offset = offset;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getEst() {
+            int s; // force initialization
+            if ((s = est) < 0) {
+                current = list.first;
+                offset = 0;
+                expectedModCount = list.modCount;
+                s = est = list.size;
+            }
+            return s;
+        }
+
+        public long estimateSize() {
+            return (long) getEst();
+        }
 
+        /**
+         * Splits off the nodes covering about the first half of the remaining
+         * elements. Returns null when they all sit in a single node.
+         */
+        public Spliterator<E> trySplit() {
+            final int s = getEst();
+            if (s <= 1)
+                return null;
+            if (offset == current.numElements) {
+                current = current.next;
+                offset = 0;
             }
+            final Node<E> x = current;
+            Node<E> p = x;
+            int n = p.numElements - offset;
+            while (n < (s >>> 1)) {
+                p = p.next;
+                n += p.numElements;
+            }
+            if (n >= s) {
+                // the half point is in the last node of the run: cut before it
+                if (p == x)
+                    return null;
+                n -= p.numElements;
+                p = p.prev;
+            }
+            NodeSpliterator<E> prefix = new NodeSpliterator<E>(list, x, offset, n, expectedModCount);
+            current = p.next;
+            offset = 0;
+            est = s - n;
+            return prefix;
+        }
 
-            System.arraycopy(newNode.items, 0, newNode.items, HALF_NODE_CAPACITY, newNode.numElements);
-            System.arraycopy(items, HALF_NODE_CAPACITY, newNode.items, 0, HALF_NODE_CAPACITY);
-            System.arraycopy(NULL_ARRAY, 0, items, HALF_NODE_CAPACITY, HALF_NODE_CAPACITY);
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int n = getEst();
+            Node<E> x = current;
+            int i = offset;
+            est = 0;
+            current = null;
+            while (n > 0) {
+                final E[] items = x.items;
+                final int end = Math.min(x.numElements, i + n);
+                n -= end - i;
+                for (final int h = x.head; i < end; i++)
+                    action.accept(items[h + i]);
+                x = x.next;
+                i = 0;
+            }
+            if (list.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
 
-            newNode.numElements += HALF_NODE_CAPACITY;
-            numElements = HALF_NODE_CAPACITY;
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (getEst() <= 0)
+                return false;
+            Node<E> x = current;
+            if (offset == x.numElements) {
+                x = current = x.next;
+                offset = 0;
+            }
+            --est;
+            E e = x.items[x.head + offset++];
+            action.accept(e);
+            if (list.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
         }
 
-        private void moveHalfToPrev() {
-            Node<E> newNode;
-            if (prev != null && prev.numElements <= HALF_NODE_CAPACITY) {
-                newNode = prev;
-            } else {
-                newNode = new Node<E>();
-                newNode.next = this;
-                newNode.prev = prev;
-                prev.next = newNode;
-                prev = newNode;
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+    /**
+     * Entry of the counted index: either a leaf node or a branch.
+     */
+    private abstract static class Counted<E> {
+        Branch<E> parent;
+
+        abstract int count();
+    }
+
+    /**
+     * Inner node of the counted index. Its children are either all nodes
+     * ({@code leaves}) or all branches, kept in chain order.
+     */
+    private static final class Branch<E> extends Counted<E> {
+        static final int FANOUT = 16;
+
+        final boolean leaves;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Counted<E>[] children = new Counted[FANOUT + 1];
+        int childCount;
+        /**
+         * Number of list elements below this branch.
+         */
+        int count;
+
+        Branch(boolean leaves) {
+            this.leaves = leaves;
+        }
+
+        int count() {
+            return count;
+        }
+
+        int slotOf(Counted<E> child) {
+            int i = 0;
+            while (children[i] != child)
+                i++;
+            return i;
+        }
+
+        void insert(int slot, Counted<E> child) {
+            System.arraycopy(children, slot, children, slot + 1, childCount - slot);
+            children[slot] = child;
+            child.parent = this;
+            childCount++;
+        }
+
+        void remove(int slot) {
+            final Counted<E> child = children[slot];
+            childCount--;
+            System.arraycopy(children, slot + 1, children, slot, childCount - slot);
+            children[childCount] = null;
+            child.parent = null;
+        }
+
+        /**
+         * Moves the upper half of the children to a new sibling branch and
+         * returns it, without linking it to the parent.
+         */
+        Branch<E> splitOff() {
+            final Branch<E> right = new Branch<E>(leaves);
+            final int keep = childCount >> 1;
+            for (int i = keep; i < childCount; i++) {
+                right.insert(right.childCount, children[i]);
+                right.count += children[i].count();
+                children[i] = null;
             }
+            count -= right.count;
+            childCount = keep;
+            return right;
+        }
+    }
 
-            System.arraycopy(items, 0, newNode.items, newNode.numElements, HALF_NODE_CAPACITY);
-            System.arraycopy(items, HALF_NODE_CAPACITY, items, 0, HALF_NODE_CAPACITY);
-            System.arraycopy(NULL_ARRAY, 0, items, HALF_NODE_CAPACITY, HALF_NODE_CAPACITY);
-            newNode.numElements += HALF_NODE_CAPACITY;
-            this.numElements = HALF_NODE_CAPACITY;
-        }
-
-//        private void rearrangeElementsWithAdjacent() {
-//            E[] temp = (E[]) new Object[3 * NODE_CAPACITY];
-//            int num = 0;
-//            if (next != null) {
-//                System.arraycopy(next.items, 0, temp, 0, next.numElements);
-//                num = next.numElements;
-//            }
-//            System.arraycopy(items, 0, temp, num, numElements);
-//            num += numElements;
-//            Node<E> p = null;
-//            if (prev != null) {
-//                System.arraycopy(prev.items, 0, temp, num, prev.numElements);
-//                num += prev.numElements;
-//                p = prev.prev;
-//                prev.prev = null;
-//            }
-//            int i = 0;
-//            while (num > 0) {
-//                Node<E> newNode = new Node<E>();
-//                System.arraycopy(temp, i, newNode.items, 0, NODE_CAPACITY);
-//                i += NODE_CAPACITY;
-//                num -= NODE_CAPACITY;
-//                newNode.prev = p;
-//                if (p != null)
-//                    p.next = newNode;
-//                p = newNode;
-//            }
-//            if (p != null && next != null) {
-//                p.next = next.next;
-//                if (next.next != null) {
-//                    next.next.prev = p;
-//                    next.next = null;
-//                }
-//            }
-//        }
-
-        private void rearrangeElementsWithAdjacent() {
-            if (prev == null || next == null)
-                return;
+    private static class Node<E> extends Counted<E> {
+        int numElements = 0;
+
+        /**
+         * Offset of the first element in items. The elements are held by
+         * items[head, head + numElements), so adding and removing at either
+         * end of the node moves head or the end instead of the elements, and
+         * all other slots are null.
+         */
+        int head = 0;
+        E[] items;
+        Node<E> next;
+        Node<E> prev;
+
+        /**
+         * Whether items is shared with a snapshot. A shared array is never
+         * written to; it is copied on the first write instead.
+         */
+        boolean shared;
+
+        @SuppressWarnings("unchecked")
+        Node(int capacity) {
+            this.items = (E[]) new Object[capacity];
+        }
+
+        Node(E[] items) {
+            this.items = items;
+        }
 
-            int num = numElements + prev.numElements + next.numElements;
+        int count() {
+            return numElements;
+        }
 
-            if (num < 2 * NODE_CAPACITY) {
-                int length = (NODE_CAPACITY - prev.numElements) > numElements ? numElements : (NODE_CAPACITY - prev.numElements);
-                System.arraycopy(items, 0, prev.items, prev.numElements, length);
-                prev.numElements += length;
+        /**
+         * Changes the element count by delta, keeping the counts of the index
+         * branches above up to date.
+         */
+        void resize(int delta) {
+            numElements += delta;
+            for (Branch<E> b = parent; b != null; b = b.parent)
+                b.count += delta;
+        }
 
-                length = numElements - length;
-                if (length == 0)
-                    return;
-                System.arraycopy(next.items, 0, next.items, next.numElements, length);
-                System.arraycopy(items, numElements - length, next.items, 0, length);
-                next.numElements += length;
+        /**
+         * Returns items for writing, replacing it by a private copy first if
+         * it is shared.
+         */
+        E[] writable() {
+            if (shared) {
+                items = items.clone();
+                shared = false;
+            }
+            return items;
+        }
 
-                prev.next = next;
-                next.prev = prev;
-                this.items = null;
+        /**
+         * Returns items for writing with the elements moved to its start,
+         * so that head is 0.
+         */
+        E[] aligned() {
+            final E[] items = writable();
+            final int h = head;
+            if (h != 0) {
+                final int n = numElements;
+                System.arraycopy(items, h, items, 0, n);
+                Arrays.fill(items, Math.max(h, n), h + n, null);
+                head = 0;
             }
+            return items;
         }
 
-        E deleteFirst() {
-            E e = items[0];
-            numElements--;
-            System.arraycopy(items, 1, items, 0, numElements);
-            if (numElements == HALF_NODE_CAPACITY) {
-                rearrangeElementsWithAdjacent();
+        /**
+         * Returns items for writing with room for k more elements after the
+         * last one, moving the elements to its start if there is none.
+         */
+        E[] openTail(int k) {
+            return (head + numElements + k > items.length) ? aligned() : writable();
+        }
+
+        E firstItem() {
+            return items[head];
+        }
+
+        E lastItem() {
+            return items[head + numElements - 1];
+        }
+
+        // The add methods expect the caller to have made room in the node.
+
+        void addToHead(E e) {
+            final E[] items = writable();
+            if (head == 0) {
+                // move the elements to the end, leaving all room in front
+                final int n = numElements;
+                final int h = items.length - n;
+                System.arraycopy(items, 0, items, h, n);
+                Arrays.fill(items, 0, Math.min(h, n), null);
+                head = h;
             }
-            return e;
+            items[--head] = e;
+            resize(1);
         }
 
-        E deleteLast() {
-            E e = items[numElements - 1];
-            items[numElements - 1] = null;
-            numElements--;
-            if (numElements == HALF_NODE_CAPACITY) {
-                rearrangeElementsWithAdjacent();
+        void addToTail(E e) {
+            openTail(1)[head + numElements] = e;
+            resize(1);
+        }
+
+        /**
+         * Inserts e at index, shifting the elements before it one slot to
+         * the front when there is room there and they are fewer than the
+         * ones after it.
+         */
+        void addOnIndex(int index, E e) {
+            final int n = numElements;
+            if (index == 0) {
+                addToHead(e);
+                return;
+            }
+            if (index == n) {
+                addToTail(e);
+                return;
+            }
+            final E[] items = writable();
+            if (head > 0 && (index < (n >> 1) || head + n == items.length)) {
+                System.arraycopy(items, head, items, head - 1, index);
+                head--;
+            } else {
+                System.arraycopy(items, head + index, items, head + index + 1, n - index);
             }
+            items[head + index] = e;
+            resize(1);
+        }
+
+        E deleteFirst() {
+            final E[] items = writable();
+            final E e = items[head];
+            items[head++] = null;
+            resize(-1);
+            if (numElements == 0)
+                head = 0;
             return e;
         }
 
-        E deleteElementWithIndex(int i) {
+        E deleteLast() {
+            final E[] items = writable();
+            resize(-1);
+            final int i = head + numElements;
             E e = items[i];
-            numElements--;
-            System.arraycopy(items, i, items, i - 1, numElements - (i));
-            if (numElements == HALF_NODE_CAPACITY) {
-                rearrangeElementsWithAdjacent();
+            items[i] = null;
+            if (numElements == 0)
+                head = 0;
+            return e;
+        }
+
+        /**
+         * Removes the element at index, closing the gap from whichever side
+         * holds fewer elements.
+         */
+        E deleteElementWithIndex(int index) {
+            final E[] items = writable();
+            final int h = head;
+            E e = items[h + index];
+            resize(-1);
+            final int n = numElements;
+            if (index < n - index) {
+                System.arraycopy(items, h, items, h + 1, index);
+                items[h] = null;
+                head = h + 1;
+            } else {
+                System.arraycopy(items, h + index + 1, items, h + index, n - index);
+                items[h + n] = null;
             }
+            if (n == 0)
+                head = 0;
             return e;
         }
     }
@@ -1022,17 +3316,59 @@ public class UnrolledLinkedList<E>
         UnrolledLinkedList<E> clone = superClone();
 
         // Put clone into "virgin" state
-        clone.first = clone.last = null;
+        clone.first = clone.last = clone.finger = null;
+        clone.root = indexed ? new Branch<E>(true) : null;
         clone.size = 0;
+        clone.nodeCount = 0;
         clone.modCount = 0;
+        clone.metrics = (metrics == null) ? null : new ListMetrics();
 
         // Initialize clone with our elements
         for (Node<E> x = first; x != null; x = x.next)
-            clone.addAll(Arrays.asList(x.items).subList(0, x.numElements));
+            clone.addAll(Arrays.asList(x.items).subList(x.head, x.head + x.numElements));
 
         return clone;
     }
 
+    /**
+     * Returns a point-in-time copy of this list that shares the element
+     * arrays of the nodes with it. Both lists mark those arrays as shared and
+     * copy one, a single node worth of elements, before they first write to
+     * it, so neither list sees changes made to the other. A snapshot costs a
+     * node header per node instead of a copy of every element, and later
+     * writes to either list pay only for the nodes they touch.
+     * <p/>
+     * <p>As this list never writes to an array it shares, the snapshot may
+     * be read by another thread while this list keeps being modified, once
+     * it has been safely published to that thread.
+     *
+     * @return a snapshot of this list
+     */
+    public UnrolledLinkedList<E> snapshot() {
+        final UnrolledLinkedList<E> copy = new UnrolledLinkedList<E>(nodeCapacity, indexed, pool);
+        Node<E> last = null;
+        for (Node<E> x = first; x != null; x = x.next) {
+            x.shared = true;
+            final Node<E> n = new Node<E>(x.items);
+            n.head = x.head;
+            n.numElements = x.numElements;
+            n.shared = true;
+            n.prev = last;
+            if (last == null)
+                copy.first = n;
+            else
+                last.next = n;
+            last = n;
+        }
+        copy.last = last;
+        copy.size = size;
+        copy.nodeCount = nodeCount;
+        copy.compactThreshold = compactThreshold;
+        if (indexed)
+            copy.rebuildIndex();
+        return copy;
+    }
+
     /**
      * Returns an array containing all of the elements in this list
      * in proper sequence (from first to last element).
@@ -1051,7 +3387,7 @@ public class UnrolledLinkedList<E>
         Object[] result = new Object[size];
         int i = 0;
         for (Node<E> x = first; x != null; x = x.next) {
-            System.arraycopy(x.items, 0, result, i, x.numElements);
+            System.arraycopy(x.items, x.head, result, i, x.numElements);
             i += x.numElements;
         }
 
@@ -1104,7 +3440,7 @@ public class UnrolledLinkedList<E>
         int i = 0;
         Object[] result = a;
         for (Node<E> x = first; x != null; x = x.next) {
-            System.arraycopy(x.items, 0, result, i, x.numElements);
+            System.arraycopy(x.items, x.head, result, i, x.numElements);
             i += x.numElements;
         }
 
@@ -1135,7 +3471,7 @@ public class UnrolledLinkedList<E>
         // Write out all elements in the proper order.
         for (Node<E> x = first; x != null; x = x.next)
             for (int i = 0; i < x.numElements; i++)
-                s.writeObject(x.items[i]);
+                s.writeObject(x.items[x.head + i]);
     }
 
     /**
@@ -1147,235 +3483,99 @@ public class UnrolledLinkedList<E>
             throws java.io.IOException, ClassNotFoundException {
         // Read in any hidden serialization magic
         s.defaultReadObject();
+        if (nodeCapacity < 2)
+            nodeCapacity = DEFAULT_NODE_CAPACITY;
 
         // Read in size
         int size = s.readInt();
-
-        // Read in all elements in the proper order.
-        for (int i = 0; i < size; i++)
-            linkLast((E) s.readObject());
-    }
-
-    public static void main(String[] args) throws InterruptedException {
-        UnrolledLinkedList<Integer> unrolledList = new UnrolledLinkedList<Integer>();
-//        unrolledList.add(1);
-//        unrolledList.add(2);
-//        unrolledList.add(3);
-//        unrolledList.add(4);
-//        unrolledList.add(5);
-//        unrolledList.add(6);
-//        unrolledList.add(7);
-//        unrolledList.add(8);
-//        unrolledList.add(9);
-//        unrolledList.add(10);
-//        unrolledList.add(11);
-//        unrolledList.add(12);
-//        unrolledList.add(13);
-//        unrolledList.add(14);
-//        unrolledList.add(15);
-//
-//        for (Integer integer : unrolledList) {
-//            System.out.println(integer);
-//        }
-
-        LinkedList<Integer> linkedList = new LinkedList<Integer>();
-        ArrayList<Integer> arrayList = new ArrayList<Integer>();
-
-        Random rand = new Random(42);
-        for (int i = 0; i < 10000; i++) {
-            unrolledList.add(rand.nextInt());
-            linkedList.add(rand.nextInt());
-            arrayList.add(rand.nextInt());
-        }
-//        Thread.sleep(30000);
-        Thread.sleep(3000);
-        System.out.println("Start");
-        long time = System.nanoTime();
-        for (int i = 0; i < 100000; i++) {
-            unrolledList.add(rand.nextInt());
-        }
-        System.out.println("Unrolled add " + (System.nanoTime() - time));
-        time = System.nanoTime();
-        for (int i = 0; i < 100000; i++) {
-            linkedList.add(rand.nextInt());
-        }
-        System.out.println("  Linked add " + (System.nanoTime() - time));
-        time = System.nanoTime();
-        for (int i = 0; i < 100000; i++) {
-            arrayList.add(rand.nextInt());
-        }
-        System.out.println("  Array add " + (System.nanoTime() - time));
-
-        System.out.println("Start get");
-
-        time = System.nanoTime();
-        for (int i = 0; i < 100000; i++) {
-            linkedList.get(rand.nextInt(110000));
-        }
-        System.out.println("  Linked get " + (System.nanoTime() - time));
-        time = System.nanoTime();
-        for (int i = 0; i < 100000; i++) {
-            arrayList.get(rand.nextInt(110000));
-        }
-        System.out.println("   Array get " + (System.nanoTime() - time));
-        time = System.nanoTime();
-        for (int i = 0; i < 100000; i++) {
-            unrolledList.get(rand.nextInt(110000));
-        }
-        System.out.println("Unrolled get " + (System.nanoTime() - time));
-
-        System.out.println("Start iterate");
-        Integer acc;
-        acc = 0;
-        for (Integer integer : linkedList) {
-            acc += integer;
-        }
-        time = System.nanoTime();
-        for (Integer integer : linkedList) {
-            acc += integer;
-        }
-        System.out.println("  Linked it " + (System.nanoTime() - time));
-        for (Integer integer : arrayList) {
-            acc += integer;
-        }
-        acc = 0;
-        time = System.nanoTime();
-        for (Integer integer : arrayList) {
-            acc += integer;
-        }
-        System.out.println("   Array it " + (System.nanoTime() - time));
-        acc = 0;
-        for (Integer integer : unrolledList) {
-            acc += integer;
-        }
-        time = System.nanoTime();
-        for (Integer integer : unrolledList) {
-            acc += integer;
-        }
-        System.out.println("Unrolled it " + (System.nanoTime() - time));
-
-        System.out.println("Start size");
-        putOutTheGarbage();
-        Thread.sleep(1000);
-        System.out.println("Unrolled size " + getObjectSize(100000));
-        putOutTheGarbage();
-        Thread.sleep(1000);
-        System.out.println("Linked size " + getLinkedSize(100000));
-        putOutTheGarbage();
-        Thread.sleep(1000);
-        System.out.println("Array size " + getArraySize(100000));
-    }
-
-
-    public static long getObjectSize(int size) {
-        long result = 0;
-
-        //this array will simply hold a bunch of references, such that
-        //the objects cannot be garbage-collected
-        Object[] objects = new Object[fSAMPLE_SIZE];
-
-        //build a bunch of identical objects
-
-        Object throwAway = new UnrolledLinkedList<Integer>();
-
-        long startMemoryUse = getMemoryUse();
-        Random rand = new Random(42);
-        for (int idx = 0; idx < objects.length; ++idx) {
-            UnrolledLinkedList<Integer> list = new UnrolledLinkedList<Integer>();
-            for (int i = 0; i < size; i++) {
-                list.add(rand.nextInt());
-            }
-            objects[idx] = list;
-        }
-        long endMemoryUse = getMemoryUse();
-
-        float approximateSize = (endMemoryUse - startMemoryUse) / fSAMPLE_SIZE;
-        result = Math.round(approximateSize);
-        return result;
-    }
-
-     public static long getLinkedSize(int size) {
-        long result = 0;
-
-        //this array will simply hold a bunch of references, such that
-        //the objects cannot be garbage-collected
-        Object[] objects = new Object[fSAMPLE_SIZE];
-
-        //build a bunch of identical objects
-
-        Object throwAway = new LinkedList<Integer>();
-
-        long startMemoryUse = getMemoryUse();
-        Random rand = new Random(42);
-        for (int idx = 0; idx < objects.length; ++idx) {
-            LinkedList<Integer> list = new LinkedList<Integer>();
-            for (int i = 0; i < size; i++) {
-                list.add(rand.nextInt());
-            }
-            objects[idx] = list;
-        }
-        long endMemoryUse = getMemoryUse();
-
-        float approximateSize = (endMemoryUse - startMemoryUse) / fSAMPLE_SIZE;
-        result = Math.round(approximateSize);
-        return result;
-    }
-
-    public static long getArraySize(int size) {
-        long result = 0;
-
-        //this array will simply hold a bunch of references, such that
-        //the objects cannot be garbage-collected
-        Object[] objects = new Object[fSAMPLE_SIZE];
-
-        //build a bunch of identical objects
-
-        Object throwAway = new ArrayList<Integer>();
-
-        long startMemoryUse = getMemoryUse();
-        Random rand = new Random(42);
-        for (int idx = 0; idx < objects.length; ++idx) {
-            ArrayList<Integer> list = new ArrayList<Integer>();
-            for (int i = 0; i < size; i++) {
-                list.add(rand.nextInt());
-            }
-            objects[idx] = list;
+        if (size < 0)
+            throw new java.io.StreamCorruptedException("Illegal size: " + size);
+
+        // Read in all elements in the proper order, filling every node.
+        while (this.size < size) {
+            final Node<E> n = newNode();
+            final int k = Math.min(size - this.size, nodeCapacity);
+            for (int i = 0; i < k; i++)
+                n.items[i] = (E) s.readObject();
+            linkPackedLast(n, k);
         }
-        long endMemoryUse = getMemoryUse();
 
-        float approximateSize = (endMemoryUse - startMemoryUse) / fSAMPLE_SIZE;
-        result = Math.round(approximateSize);
-        return result;
+        if (indexed)
+            rebuildIndex();
     }
 
-    // PRIVATE //
-    private static int fSAMPLE_SIZE = 1000;
-    private static long fSLEEP_INTERVAL = 100;
-
-    private static long getMemoryUse() {
-        putOutTheGarbage();
-        long totalMemory = Runtime.getRuntime().totalMemory();
-
-        putOutTheGarbage();
-        long freeMemory = Runtime.getRuntime().freeMemory();
-
-        return (totalMemory - freeMemory);
+    /**
+     * Appends node n, holding k elements, to the chain of a list being
+     * built, leaving the index to a {@link #rebuildIndex} once it is done.
+     */
+    private void linkPackedLast(Node<E> n, int k) {
+        n.numElements = k;
+        n.prev = last;
+        if (last == null)
+            first = n;
+        else
+            last.next = n;
+        last = n;
+        nodeCount++;
+        size += k;
     }
 
-    private static void putOutTheGarbage() {
-        collectGarbage();
-        collectGarbage();
+    /**
+     * Writes the elements of this list to out, a node at a time, in a
+     * compact binary format that {@link #readFrom} reads back. Next to the
+     * elements, only the node capacity, the size and the indexed flag of the
+     * list are written, in a small header.
+     * <p/>
+     * <p>Unlike {@link java.io.ObjectOutputStream}, which writes a handle or
+     * a class descriptor with every element, this format holds nothing but
+     * what the codec writes for each element. With a fixed size codec such
+     * as {@link ElementCodec#INTEGER} every node goes out with a single
+     * {@code write} of a byte array.
+     *
+     * @param out   the output to write to
+     * @param codec the codec encoding the elements
+     * @throws IOException          if writing fails
+     * @throws NullPointerException if {@code out} or {@code codec} is null
+     */
+    public void writeTo(DataOutput out, ElementCodec<? super E> codec) throws IOException {
+        if (codec == null)
+            throw new NullPointerException();
+        Codecs.writeHeader(out, nodeCapacity, size);
+        out.writeBoolean(indexed);
+        for (Node<E> x = first; x != null; x = x.next)
+            codec.writeChunk(out, x.items, x.head, x.numElements);
     }
 
-    private static void collectGarbage() {
-        try {
-            System.gc();
-            Thread.currentThread().sleep(fSLEEP_INTERVAL);
-            System.runFinalization();
-            Thread.currentThread().sleep(fSLEEP_INTERVAL);
-        } catch (InterruptedException ex) {
-            ex.printStackTrace();
+    /**
+     * Reads a list written by {@link #writeTo} from in, with the node
+     * capacity and indexed mode it had. The elements are read straight into
+     * fully packed nodes, a node at a time, and the index of an indexed list
+     * is built once at the end.
+     *
+     * @param in    the input to read from
+     * @param codec the codec the list was written with
+     * @param <E>   the type of elements in the list
+     * @return the list read
+     * @throws IOException          if reading fails or in does not hold a
+     *                              list written by {@code writeTo}
+     * @throws NullPointerException if {@code in} or {@code codec} is null
+     */
+    public static <E> UnrolledLinkedList<E> readFrom(DataInput in, ElementCodec<? extends E> codec)
+            throws IOException {
+        if (codec == null)
+            throw new NullPointerException();
+        final int nodeCapacity = Codecs.readNodeCapacity(in);
+        final int size = Codecs.readSize(in);
+        final boolean indexed = in.readBoolean();
+        final UnrolledLinkedList<E> list = new UnrolledLinkedList<E>(nodeCapacity, indexed);
+        while (list.size < size) {
+            final Node<E> n = list.newNode();
+            final int k = Math.min(size - list.size, nodeCapacity);
+            codec.readChunk(in, n.items, 0, k);
+            list.linkPackedLast(n, k);
         }
+        if (indexed)
+            list.rebuildIndex();
+        return list;
     }
 }
-